@@ -50,7 +50,7 @@ export class Board {
       for (let y = 0; y < Board.HEIGHT; y++) {
         const square = new Square(x, y);
 
-        if ([0, 1, 3, 4].includes(y)) {
+        if ([0, 1, 2, 3].includes(y)) {
           square.startable = true;
           square.side = Side.A;
         } else if ([6, 7, 8, 9].includes(y)) {
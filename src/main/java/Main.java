@@ -1,12 +1,32 @@
 import db.Db;
+import game.SessionManager;
+import java.nio.file.Path;
+import java.time.Duration;
 import server.Routes;
 import server.Server;
+import server.ServerConfig;
+import util.EnvLoader;
 
 public class Main {
 
   public static void main(String[] args) throws Exception {
     Db.init();
-    Routes.register();
-    new Server(4000, "public").run();
+
+    Path store = Path.of(EnvLoader.get("GAME_STORE_DIR", "data/games"));
+    Duration idle = Duration.ofMinutes(EnvLoader.getInt("GAME_IDLE_MINUTES", 30));
+    try (SessionManager sessions = SessionManager.persistent(store, idle)) {
+      Routes.register(sessions);
+      Server server = new Server(ServerConfig.fromEnv(), "public", sessions);
+      // On SIGTERM stop taking connections, then save every game before the JVM exits
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    server.stop();
+                    sessions.close();
+                  },
+                  "shutdown"));
+      server.run();
+    }
   }
 }
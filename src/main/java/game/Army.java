@@ -2,14 +2,29 @@ package game;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class Army {
 
+  public static final int SIZE = 40;
+
+  // Value of each rank for evaluation, indexed by rank - FLAG
+  static final int[] MATERIAL = {0, 4, 5, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
   public List<Piece> pieces;
   Side side;
 
+  // Pieces of each rank, indexed by rank - FLAG; rebuilt when a rank changes
+  private final Piece[][] byRank = new Piece[Piece.RANKS][];
+  private boolean indexStale = true;
+
+  // Live pieces of each rank, and totals derived from them
+  private final int[] live = new int[Piece.RANKS];
+  private int material;
+  private int movable;
+
   public Army(Side side) {
     this.side = side;
     pieces = new ArrayList<>();
@@ -26,8 +41,13 @@ public class Army {
     pieces.addAll(makePieces(0, 6)); // bomb
     pieces.add(new Piece(-1)); // flag
 
-    // Mark as belonging to army
-    pieces.forEach(x -> x.side = this.side);
+    // Mark as belonging to army; B's ids follow A's so both fit one roster
+    int base = side == Side.B ? SIZE : 0;
+    for (int i = 0; i < pieces.size(); i++) {
+      pieces.get(i).side = this.side;
+      pieces.get(i).id = base + i;
+      track(pieces.get(i), pieces.get(i).rank, false);
+    }
   }
 
   private List<Piece> makePieces(int rank, int count) {
@@ -35,6 +55,68 @@ public class Army {
   }
 
   public Piece findAnyByRank(int x) {
-    return this.pieces.stream().filter(p -> p.rank == x).findAny().get();
+    Piece[] ofRank = piecesOfRank(x);
+    if (ofRank.length == 0) {
+      throw new NoSuchElementException("No piece of rank " + x);
+    }
+    return ofRank[0];
+  }
+
+  // Pieces of a rank, dead or alive; the array is shared and must not be modified
+  Piece[] piecesOfRank(int rank) {
+    if (indexStale) {
+      int[] counts = new int[Piece.RANKS];
+      for (Piece piece : pieces) {
+        counts[piece.rank - Piece.FLAG]++;
+      }
+      for (int r = 0; r < Piece.RANKS; r++) {
+        byRank[r] = new Piece[counts[r]];
+        counts[r] = 0;
+      }
+      for (Piece piece : pieces) {
+        int r = piece.rank - Piece.FLAG;
+        byRank[r][counts[r]++] = piece;
+      }
+      indexStale = false;
+    }
+    return byRank[rank - Piece.FLAG];
+  }
+
+  int liveCount(int rank) {
+    return live[rank - Piece.FLAG];
+  }
+
+  // Sum of MATERIAL over the live pieces
+  int material() {
+    return material;
+  }
+
+  // Live pieces that are neither bombs nor the flag
+  int movableCount() {
+    return movable;
+  }
+
+  /**
+   * Updates the per-rank counts after a piece of this army changed rank or came back from or went
+   * to the dead. The board calls this whenever it kills, revives or re-ranks a piece.
+   */
+  final void track(Piece piece, int previousRank, boolean wasAlive) {
+    if (wasAlive) {
+      count(previousRank, -1);
+    }
+    if (piece.alive) {
+      count(piece.rank, 1);
+    }
+    if (piece.rank != previousRank) {
+      indexStale = true;
+    }
+  }
+
+  private void count(int rank, int delta) {
+    live[rank - Piece.FLAG] += delta;
+    material += delta * MATERIAL[rank - Piece.FLAG];
+    if (rank != Piece.BOMB && rank != Piece.FLAG) {
+      movable += delta;
+    }
   }
 }
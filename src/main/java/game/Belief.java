@@ -0,0 +1,176 @@
+package game;
+
+import java.util.SplittableRandom;
+
+/**
+ * One side's belief about the ranks of the enemy's pieces.
+ *
+ * <p>Each enemy piece keeps a mask of ranks it can still be (bit {@code rank - FLAG}), and the
+ * belief counts how many pieces of every rank are still unidentified, starting from the
+ * composition built by {@link Army}. A piece's distribution is its remaining candidates weighted by
+ * those counts, so every update and query touches a fixed number of ranks and never enumerates
+ * setups.
+ */
+public class Belief {
+  private static final int ALL = (1 << Piece.RANKS) - 1;
+  private static final int IMMOBILE = bit(Piece.BOMB) | bit(Piece.FLAG);
+
+  private final Side enemy;
+  private final int base;
+  private final int[] candidates = new int[Army.SIZE];
+  private final boolean[] identified = new boolean[Army.SIZE];
+
+  // Unidentified enemy pieces per rank, indexed by rank - FLAG
+  private final int[] remaining = new int[Piece.RANKS];
+
+  // Scratch counts for sample
+  private final int[] available = new int[Piece.RANKS];
+
+  public Belief(Army enemy) {
+    this.enemy = enemy.side;
+    this.base = enemy.side == Side.B ? Army.SIZE : 0;
+    for (Piece piece : enemy.pieces) {
+      remaining[piece.rank - Piece.FLAG]++;
+      candidates[piece.id - base] = ALL;
+    }
+    for (Piece piece : enemy.pieces) {
+      if (piece.revealed) {
+        identify(piece, piece.rank);
+      }
+    }
+  }
+
+  private Belief(Belief other) {
+    this.enemy = other.enemy;
+    this.base = other.base;
+    System.arraycopy(other.candidates, 0, candidates, 0, Army.SIZE);
+    System.arraycopy(other.identified, 0, identified, 0, Army.SIZE);
+    System.arraycopy(other.remaining, 0, remaining, 0, Piece.RANKS);
+  }
+
+  // Independent copy, for search threads that sample concurrently
+  Belief copy() {
+    return new Belief(this);
+  }
+
+  /**
+   * Folds the outcome of a move into the belief. A moved enemy piece is neither a bomb nor a flag,
+   * an enemy piece moving more than one square is a scout, and combat reveals both pieces.
+   */
+  void update(MovementResult result) {
+    if (!result.moved) {
+      return;
+    }
+
+    Piece piece = result.piece;
+    if (piece.side == enemy && !identified[piece.id - base]) {
+      int distance =
+          Math.abs(Bitboard.x(result.to) - Bitboard.x(result.from))
+              + Math.abs(Bitboard.y(result.to) - Bitboard.y(result.from));
+      if (distance > 1) {
+        identify(piece, Piece.SCOUT);
+      } else {
+        candidates[piece.id - base] &= ~IMMOBILE;
+      }
+    }
+
+    if (result.defender != null) {
+      Piece target = piece.side == enemy ? piece : result.defender;
+      identify(target, target.rank);
+    }
+  }
+
+  // Probability that an enemy piece has the given rank
+  double probability(Piece piece, int rank) {
+    int i = piece.id - base;
+    if ((candidates[i] & bit(rank)) == 0) {
+      return 0;
+    }
+    if (identified[i]) {
+      return 1;
+    }
+    int total = weight(candidates[i]);
+    return total > 0 ? (double) remaining[rank - Piece.FLAG] / total : 0;
+  }
+
+  /**
+   * Writes the rank distribution of an enemy piece into out, indexed by rank - FLAG. The result
+   * can be passed straight to {@link Combat#expected}.
+   */
+  void distribution(Piece piece, double[] out) {
+    for (int rank = Piece.FLAG; rank <= Piece.MARSHAL; rank++) {
+      out[rank - Piece.FLAG] = probability(piece, rank);
+    }
+  }
+
+  // Ranks an enemy piece can still be, a bit per rank - FLAG
+  int candidates(Piece piece) {
+    return candidates[piece.id - base];
+  }
+
+  /**
+   * Draws ranks for the given enemy pieces consistent with the belief: every unidentified piece
+   * gets one of its candidate ranks and no rank is used more often than it remains. Pieces should
+   * be ordered most constrained first so that moved pieces are not left with only bombs.
+   */
+  void sample(Piece[] pieces, int[] ranks, SplittableRandom random) {
+    System.arraycopy(remaining, 0, available, 0, Piece.RANKS);
+    for (int i = 0; i < pieces.length; i++) {
+      int id = pieces[i].id - base;
+      if (identified[id]) {
+        ranks[i] = Integer.numberOfTrailingZeros(candidates[id]) + Piece.FLAG;
+        continue;
+      }
+
+      int mask = candidates[id];
+      int total = 0;
+      for (int r = 0; r < Piece.RANKS; r++) {
+        if ((mask & (1 << r)) != 0) {
+          total += available[r];
+        }
+      }
+      if (total == 0) {
+        // Observations contradict the composition; fall back to any rank left
+        mask = ALL;
+        for (int r = 0; r < Piece.RANKS; r++) {
+          total += available[r];
+        }
+      }
+
+      int pick = random.nextInt(total);
+      int r = 0;
+      while ((mask & (1 << r)) == 0 || pick >= available[r]) {
+        if ((mask & (1 << r)) != 0) {
+          pick -= available[r];
+        }
+        r++;
+      }
+      available[r]--;
+      ranks[i] = r + Piece.FLAG;
+    }
+  }
+
+  private void identify(Piece piece, int rank) {
+    int i = piece.id - base;
+    if (identified[i]) {
+      return;
+    }
+    identified[i] = true;
+    candidates[i] = bit(rank);
+    remaining[rank - Piece.FLAG]--;
+  }
+
+  private int weight(int mask) {
+    int total = 0;
+    for (int r = 0; r < Piece.RANKS; r++) {
+      if ((mask & (1 << r)) != 0) {
+        total += remaining[r];
+      }
+    }
+    return total;
+  }
+
+  private static int bit(int rank) {
+    return 1 << (rank - Piece.FLAG);
+  }
+}
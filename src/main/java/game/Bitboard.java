@@ -0,0 +1,126 @@
+package game;
+
+/**
+ * A set of board squares packed into two longs. Square {@code y * WIDTH + x} maps to bit {@code
+ * sq} of {@code lo} for squares 0..63 and to bit {@code sq - 64} of {@code hi} for 64..99.
+ */
+final class Bitboard {
+  static final int SQUARES = Board.WIDTH * Board.HEIGHT;
+
+  // Orthogonal neighbours of every square, clipped to the board edges
+  static final Bitboard[] NEIGHBOURS = new Bitboard[SQUARES];
+
+  static {
+    for (int sq = 0; sq < SQUARES; sq++) {
+      Bitboard b = new Bitboard();
+      int x = x(sq);
+      int y = y(sq);
+      if (x > 0) b.set(sq - 1);
+      if (x < Board.WIDTH - 1) b.set(sq + 1);
+      if (y > 0) b.set(sq - Board.WIDTH);
+      if (y < Board.HEIGHT - 1) b.set(sq + Board.WIDTH);
+      NEIGHBOURS[sq] = b;
+    }
+  }
+
+  // Squares strictly between two squares on the same rank or file, indexed by from * SQUARES + to
+  private static final long[] BETWEEN_LO = new long[SQUARES * SQUARES];
+  private static final long[] BETWEEN_HI = new long[SQUARES * SQUARES];
+
+  static {
+    for (int from = 0; from < SQUARES; from++) {
+      for (int to = 0; to < SQUARES; to++) {
+        int dx = Integer.signum(x(to) - x(from));
+        int dy = Integer.signum(y(to) - y(from));
+        if (from == to || (dx != 0 && dy != 0)) {
+          continue;
+        }
+        Bitboard b = new Bitboard();
+        for (int sq = from + index(dx, dy); sq != to; sq += index(dx, dy)) {
+          b.set(sq);
+        }
+        BETWEEN_LO[from * SQUARES + to] = b.lo;
+        BETWEEN_HI[from * SQUARES + to] = b.hi;
+      }
+    }
+  }
+
+  long lo;
+  long hi;
+
+  static int index(int x, int y) {
+    return y * Board.WIDTH + x;
+  }
+
+  static int x(int sq) {
+    return sq % Board.WIDTH;
+  }
+
+  static int y(int sq) {
+    return sq / Board.WIDTH;
+  }
+
+  // True if no square strictly between from and to is in this set
+  boolean isClearBetween(int from, int to) {
+    int i = from * SQUARES + to;
+    return ((lo & BETWEEN_LO[i]) | (hi & BETWEEN_HI[i])) == 0;
+  }
+
+  boolean test(int sq) {
+    return sq < 64 ? (lo & (1L << sq)) != 0 : (hi & (1L << (sq - 64))) != 0;
+  }
+
+  void set(int sq) {
+    if (sq < 64) {
+      lo |= 1L << sq;
+    } else {
+      hi |= 1L << (sq - 64);
+    }
+  }
+
+  void clear(int sq) {
+    if (sq < 64) {
+      lo &= ~(1L << sq);
+    } else {
+      hi &= ~(1L << (sq - 64));
+    }
+  }
+
+  void clearAll() {
+    lo = 0;
+    hi = 0;
+  }
+
+  boolean isEmpty() {
+    return (lo | hi) == 0;
+  }
+
+  int count() {
+    return Long.bitCount(lo) + Long.bitCount(hi);
+  }
+
+  boolean intersects(Bitboard other) {
+    return ((lo & other.lo) | (hi & other.hi)) != 0;
+  }
+
+  // Number of squares in both sets
+  int countCommon(Bitboard other) {
+    return Long.bitCount(lo & other.lo) + Long.bitCount(hi & other.hi);
+  }
+
+  // Lowest set square at or after from, or -1
+  int next(int from) {
+    if (from < 64) {
+      long bits = lo & (-1L << from);
+      if (bits != 0) {
+        return Long.numberOfTrailingZeros(bits);
+      }
+      from = 64;
+    }
+    if (from >= SQUARES) {
+      return -1;
+    }
+    long bits = hi & (-1L << (from - 64));
+    return bits != 0 ? 64 + Long.numberOfTrailingZeros(bits) : -1;
+  }
+}
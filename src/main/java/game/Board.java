@@ -1,6 +1,7 @@
 package game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,15 +9,105 @@ public class Board {
   public static final int WIDTH = 10;
   public static final int HEIGHT = 10;
 
+  private static final int[][] DIRECTIONS = {
+    {-1, 0}, // Up
+    {1, 0}, // Down
+    {0, -1}, // Left
+    {0, 1} // Right
+  };
+
+  private static final int NO_PIECE = 0x7F;
+
   private static final int[][] LAKE_POSITIONS = {
     {2, 4}, {2, 5}, {3, 4}, {3, 5}, {6, 4}, {6, 5}, {7, 4}, {7, 5}
   };
 
+  static final Bitboard LAKES = new Bitboard();
+
+  static {
+    for (int[] pos : LAKE_POSITIONS) {
+      LAKES.set(Bitboard.index(pos[0], pos[1]));
+    }
+  }
+
+  // Squares a scout can slide over from each square in each direction, nearest first, stopping at
+  // the edge or a lake; indexed by square * 4 + direction
+  static final int[][] RAYS = new int[Bitboard.SQUARES * DIRECTIONS.length][];
+
+  static {
+    int[] ray = new int[Math.max(WIDTH, HEIGHT)];
+    for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+      for (int d = 0; d < DIRECTIONS.length; d++) {
+        int length = 0;
+        int x = Bitboard.x(sq) + DIRECTIONS[d][0];
+        int y = Bitboard.y(sq) + DIRECTIONS[d][1];
+        while (x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT && !LAKES.test(Bitboard.index(x, y))) {
+          ray[length++] = Bitboard.index(x, y);
+          x += DIRECTIONS[d][0];
+          y += DIRECTIONS[d][1];
+        }
+        RAYS[sq * DIRECTIONS.length + d] = Arrays.copyOf(ray, length);
+      }
+    }
+  }
+
+  // Squares each side may set up on, never a lake
+  private static final Bitboard STARTABLE_A = new Bitboard();
+  private static final Bitboard STARTABLE_B = new Bitboard();
+
+  static {
+    for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+      if (LAKES.test(sq)) {
+        continue;
+      }
+      switch (startingSide(Bitboard.y(sq))) {
+        case A -> STARTABLE_A.set(sq);
+        case B -> STARTABLE_B.set(sq);
+        default -> {}
+      }
+    }
+  }
+
   private final Square[][] grid;
 
+  // Reused by generateMoves so move generation does not allocate
+  private final Bitboard scratch = new Bitboard();
+
+  // Moves of one piece, for hasOnlyForbiddenMoves; a scout has at most 9 + 9
+  private final int[] pieceMoves = new int[WIDTH + HEIGHT];
+
+  // Piece on every square, indexed like Bitboard
+  private final Piece[] cells = new Piece[Bitboard.SQUARES];
+
+  private final Bitboard occupiedA = new Bitboard();
+  private final Bitboard occupiedB = new Bitboard();
+  private final Bitboard occupiedNeither = new Bitboard();
+
+  // Movable pieces with at least one legal move, kept up to date around every changed square
+  private final Bitboard mobileA = new Bitboard();
+  private final Bitboard mobileB = new Bitboard();
+
+  // Lakes plus every piece on the board; nothing can pass through these
+  private final Bitboard blocked = new Bitboard();
+
+  // Occupancy of both sides per rank, indexed by rank - Piece.FLAG
+  private final Bitboard[] ranks = new Bitboard[Piece.RANKS];
+
   Army A;
   Army B;
 
+  // Both armies indexed by Piece.id
+  private final Piece[] roster = new Piece[2 * Army.SIZE];
+  private final Position[] graveyard = new Position[2 * Army.SIZE];
+  private final UndoStack undo = new UndoStack();
+
+  // Recent moves of each side for the repetition rules; only move records them, search does not
+  private final MoveHistory historyA = new MoveHistory();
+  private final MoveHistory historyB = new MoveHistory();
+
+  // Zobrist hash of the pieces on the board, kept up to date by putPiece, removePiece and reveal
+  private long hash;
+
   public Board() {
     grid = new Square[WIDTH][HEIGHT];
 
@@ -24,113 +115,299 @@ public class Board {
     for (int x = 0; x < WIDTH; x++) {
       for (int y = 0; y < HEIGHT; y++) {
         Square s = new Square(x, y);
-
-        switch (y) {
-          case 0, 1, 3, 4 -> {
-            s.startable = true;
-            s.side = Side.A;
-          }
-          case 6, 7, 8, 9 -> {
-            s.startable = true;
-            s.side = Side.B;
-          }
-          default -> {}
-        }
+        s.side = startingSide(y);
+        s.passable = !LAKES.test(Bitboard.index(x, y));
+        s.startable = s.side != Side.NEITHER && s.passable;
         grid[x][y] = s;
       }
     }
 
-    // Mark lake positions as impassable
-    for (int[] pos : LAKE_POSITIONS) {
-      int x = pos[0];
-      int y = pos[1];
-      if (isInBounds(x, y)) {
-        grid[x][y].passable = false;
-      }
+    blocked.lo = LAKES.lo;
+    blocked.hi = LAKES.hi;
+    for (int i = 0; i < ranks.length; i++) {
+      ranks[i] = new Bitboard();
     }
 
     A = new Army(Side.A);
     B = new Army(Side.B);
+    for (Piece piece : A.pieces) {
+      roster[piece.id] = piece;
+    }
+    for (Piece piece : B.pieces) {
+      roster[piece.id] = piece;
+    }
   }
 
-  public static boolean isLakeTile(int x, int y) {
-    for (int[] pos : LAKE_POSITIONS) {
-      if (pos[0] == x && pos[1] == y) {
-        return true;
+  // Deep copy with the same pieces, positions and flags, but no undo history
+  Board copy() {
+    Board copy = new Board();
+    for (Piece piece : roster) {
+      int sq = piece.position == null ? -1 : Bitboard.index(piece.position.x, piece.position.y);
+      copy.restore(copy.roster[piece.id], piece.rank, sq, piece.alive, piece.revealed);
+    }
+    return copy;
+  }
+
+  // Changes the rank of a piece, keeping occupancy and hash in step; used to sample hidden pieces
+  void setRank(Piece piece, int rank) {
+    int previous = piece.rank;
+    if (piece.position == null) {
+      piece.rank = rank;
+    } else {
+      removePiece(piece);
+      piece.rank = rank;
+      putPiece(piece, Bitboard.index(piece.position.x, piece.position.y));
+    }
+    army(piece.side).track(piece, previous, piece.alive);
+  }
+
+  // Takes every piece off the board and forgets the undo history; used before restoring a snapshot
+  void clear() {
+    for (Piece piece : roster) {
+      if (piece.position != null) {
+        removePiece(piece);
+        graveyard[piece.id] = piece.position;
+        piece.position = null;
       }
     }
-    return false;
+    undo.clear();
+    historyA.clear();
+    historyB.clear();
   }
 
-  List<Square> validMoves(Piece piece) {
-    Square location = this.grid[piece.position.x][piece.position.y];
-    List<Square> validSquares = new ArrayList<>();
-
-    int[][] directions = {
-      {-1, 0}, // Up
-      {1, 0}, // Down
-      {0, -1}, // Left
-      {0, 1} // Right
+  /**
+   * Sets every attribute of a piece at once, reusing its Position. The target square must be
+   * empty, so callers restoring a whole position should {@link #clear} first.
+   *
+   * @param sq square to put the piece on, or -1 to leave it off the board
+   */
+  void restore(Piece piece, int rank, int sq, boolean alive, boolean revealed) {
+    if (piece.position != null) {
+      removePiece(piece);
+      graveyard[piece.id] = piece.position;
+      piece.position = null;
+    }
+    int previousRank = piece.rank;
+    boolean wasAlive = piece.alive;
+    piece.rank = rank;
+    piece.alive = alive;
+    piece.revealed = revealed;
+    army(piece.side).track(piece, previousRank, wasAlive);
+    if (sq >= 0) {
+      if (cells[sq] != null) {
+        throw new IllegalStateException("Square " + sq + " is already occupied");
+      }
+      Position position = graveyard[piece.id];
+      if (position == null) {
+        position = new Position(Bitboard.x(sq), Bitboard.y(sq));
+      } else {
+        position.update(Bitboard.x(sq), Bitboard.y(sq));
+      }
+      piece.position = position;
+      putPiece(piece, sq);
+    }
+  }
+
+  Army army(Side side) {
+    return switch (side) {
+      case A -> A;
+      case B -> B;
+      default -> throw new IllegalArgumentException("Unexpected value: " + side);
     };
+  }
 
-    for (int[] dir : directions) {
-      int dx = dir[0];
-      int dy = dir[1];
+  // Material of the side minus that of its opponent
+  int materialBalance(Side side) {
+    return army(side).material() - army(Side.getOpposite(side)).material();
+  }
 
-      int newX = location.x + dx;
-      int newY = location.y + dy;
+  /**
+   * Whether the side has lost: its flag has been captured, or it has pieces on the board but none
+   * of them can move. Both checks are O(1) since flag and mobility are tracked incrementally.
+   */
+  boolean hasLost(Side side) {
+    return army(side).liveCount(Piece.FLAG) == 0
+        || (!occupancy(side).isEmpty() && mobility(side).isEmpty());
+  }
 
-      if (piece.rank == Piece.SCOUT) {
-        // Keep going in this direction
-        while (isInBounds(newX, newY) && isPassable(newX, newY)) {
-          if (isOccupied(piece.side, newX, newY)) {
-            break; // Can't move into or beyond own piece
-          }
+  /**
+   * Whether the side has pieces that can move but the repetition rules forbid every move they
+   * have, which loses like having no movable piece. Unlike hasLost this generates moves, so only
+   * {@link #move} checks it, not search.
+   */
+  boolean hasOnlyForbiddenMoves(Side side) {
+    Bitboard mobile = mobility(side);
+    if (mobile.isEmpty()) {
+      return false;
+    }
+    for (int sq = mobile.next(0); sq >= 0; sq = mobile.next(sq + 1)) {
+      for (int i = 0, n = generateMoves(cells[sq], pieceMoves, 0); i < n; i++) {
+        if (!isRepetition(pieceMoves[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
 
-          validSquares.add(this.grid[newX][newY]);
+  // Squares of the side's pieces that have a legal move
+  Bitboard mobility(Side side) {
+    return side == Side.A ? mobileA : mobileB;
+  }
 
-          if (isOccupiedByOpposite(piece.side, newX, newY)) {
-            validSquares.add(this.grid[newX][newY]);
+  Piece piece(int id) {
+    return roster[id];
+  }
+
+  public static boolean isLakeTile(int x, int y) {
+    return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT && LAKES.test(Bitboard.index(x, y));
+  }
+
+  List<Square> validMoves(Piece piece) {
+    Bitboard targets = new Bitboard();
+    targets(piece, targets);
+
+    List<Square> validSquares = new ArrayList<>(targets.count());
+    for (int sq = targets.next(0); sq >= 0; sq = targets.next(sq + 1)) {
+      validSquares.add(this.grid[Bitboard.x(sq)][Bitboard.y(sq)]);
+    }
+    return validSquares;
+  }
+
+  /**
+   * Writes the moves of every piece of the given side into buffer as packed {@link Move} ints.
+   * The buffer should hold at least {@link Move#MAX_MOVES} entries.
+   *
+   * @return the number of moves written
+   */
+  int generateMoves(Side side, int[] buffer) {
+    Bitboard own = occupancy(side);
+    int count = 0;
+    for (int sq = own.next(0); sq >= 0; sq = own.next(sq + 1)) {
+      count = generateMoves(cells[sq], buffer, count);
+    }
+    return count;
+  }
+
+  /**
+   * Writes the moves of a single piece into buffer starting at offset.
+   *
+   * @return the offset after the last move written
+   */
+  int generateMoves(Piece piece, int[] buffer, int offset) {
+    if (piece.position == null || !piece.movable()) {
+      return offset;
+    }
+    int from = Bitboard.index(piece.position.x, piece.position.y);
+    targets(piece, scratch);
+    for (int to = scratch.next(0); to >= 0; to = scratch.next(to + 1)) {
+      buffer[offset++] = Move.encode(from, to, cells[to] != null ? Move.CAPTURE : 0);
+    }
+    return offset;
+  }
+
+  // Fills out with every square the piece may move to or attack
+  private void targets(Piece piece, Bitboard out) {
+    int from = Bitboard.index(piece.position.x, piece.position.y);
+    Bitboard own = occupancy(piece.side);
+    out.clearAll();
+
+    if (piece.rank == Piece.SCOUT) {
+      // Keep going along each ray
+      for (int d = from * DIRECTIONS.length; d < (from + 1) * DIRECTIONS.length; d++) {
+        for (int sq : RAYS[d]) {
+          if (own.test(sq)) {
+            break; // Can't move into or beyond own piece
+          }
+          out.set(sq);
+          if (blocked.test(sq)) {
             break; // Can capture, but can't move further
           }
-
-          newX += dx;
-          newY += dy;
-        }
-      } else {
-        // One-step move for normal pieces
-        if (isInBounds(newX, newY)
-            && isPassable(newX, newY)
-            && (!isOccupied(piece.side, newX, newY)
-                || isOccupiedByOpposite(piece.side, newX, newY))) {
-          validSquares.add(this.grid[newX][newY]);
         }
       }
+    } else {
+      // One-step move for normal pieces
+      Bitboard neighbours = Bitboard.NEIGHBOURS[from];
+      out.lo = neighbours.lo & ~(own.lo | LAKES.lo);
+      out.hi = neighbours.hi & ~(own.hi | LAKES.hi);
     }
-
-    return validSquares;
   }
 
   boolean isValidMove(Piece piece, int x, int y) {
-    return validMoves(piece).stream().anyMatch(s -> s.x == x && s.y == y);
+    if (piece.position == null || !isInBounds(x, y)) {
+      return false;
+    }
+    int from = Bitboard.index(piece.position.x, piece.position.y);
+    int to = Bitboard.index(x, y);
+    if (LAKES.test(to) || occupancy(piece.side).test(to)) {
+      return false;
+    }
+
+    int distance = Math.abs(x - piece.position.x) + Math.abs(y - piece.position.y);
+    if (distance == 1) {
+      return true;
+    }
+    // Scouts slide along a rank or file over empty squares only
+    return piece.rank == Piece.SCOUT
+        && (x == piece.position.x || y == piece.position.y)
+        && distance > 1
+        && blocked.isClearBetween(from, to);
+  }
+
+  // Side that sets up on a row, or NEITHER for the two middle rows with the lakes
+  private static Side startingSide(int y) {
+    return switch (y) {
+      case 0, 1, 2, 3 -> Side.A;
+      case 6, 7, 8, 9 -> Side.B;
+      default -> Side.NEITHER;
+    };
+  }
+
+  static Bitboard startable(Side side) {
+    return switch (side) {
+      case A -> STARTABLE_A;
+      case B -> STARTABLE_B;
+      default -> throw new IllegalArgumentException("Unexpected value: " + side);
+    };
+  }
+
+  // Whether the side may place a piece on the square during setup
+  boolean isStartable(Side side, int x, int y) {
+    return isInBounds(x, y) && grid[x][y].startable && grid[x][y].side == side;
   }
 
   boolean isPassable(int x, int y) {
-    Square square = this.grid[x][y];
-    return square.passable;
+    return !LAKES.test(Bitboard.index(x, y));
   }
 
   Optional<Piece> getPiece(int x, int y) {
-    Square square = this.grid[x][y];
-    return Optional.ofNullable(square.piece);
+    return Optional.ofNullable(cells[Bitboard.index(x, y)]);
   }
 
   boolean isOccupied(Side side, int x, int y) {
-    return getPiece(x, y).map(piece -> piece.side == side).orElse(false);
+    return occupancy(side).test(Bitboard.index(x, y));
   }
 
   boolean isOccupiedByOpposite(Side side, int x, int y) {
-    return getPiece(x, y).map(piece -> piece.side == Side.getOpposite(side)).orElse(false);
+    return side != Side.NEITHER
+        && occupancy(Side.getOpposite(side)).test(Bitboard.index(x, y));
+  }
+
+  Bitboard occupancy(Side side) {
+    return switch (side) {
+      case A -> occupiedA;
+      case B -> occupiedB;
+      default -> occupiedNeither;
+    };
+  }
+
+  // Identifies the current position for transposition and repetition lookups
+  long hash() {
+    return hash;
+  }
+
+  Bitboard occupancy(int rank) {
+    return ranks[rank - Piece.FLAG];
   }
 
   boolean place(Piece piece, int x, int y) {
@@ -145,65 +422,289 @@ public class Board {
       return false;
     }
 
-    if (grid[x][y].piece != null) {
+    int sq = Bitboard.index(x, y);
+    if (cells[sq] != null || LAKES.test(sq)) {
       return false;
     }
 
     if (piece.position != null) {
       // clear the spot
-      grid[piece.position.x][piece.position.y].piece = null;
+      removePiece(piece);
     }
 
-    grid[x][y].piece = piece;
     piece.position = new Position(x, y);
+    putPiece(piece, sq);
+    return true;
+  }
+
+  /**
+   * Places a complete setup in one pass: piece i of the army goes to squares[i]. Every square must
+   * be startable for the army's side, which excludes the lakes, distinct, and free of the other
+   * side's pieces. Nothing is placed unless the whole setup is valid; pieces of the army already on
+   * the board are moved.
+   */
+  boolean placeArmy(Army army, int[] squares) {
+    if (army.side == Side.NEITHER || squares.length != army.pieces.size()) {
+      return false;
+    }
+
+    Bitboard startable = startable(army.side);
+    Bitboard other = occupancy(Side.getOpposite(army.side));
+    long seenLo = 0;
+    long seenHi = 0;
+    for (int sq : squares) {
+      if (sq < 0 || sq >= Bitboard.SQUARES || !startable.test(sq) || other.test(sq)) {
+        return false;
+      }
+      long bit = 1L << sq; // Shifts use the low six bits, so this also covers hi
+      if (sq < 64 ? (seenLo & bit) != 0 : (seenHi & bit) != 0) {
+        return false;
+      }
+      if (sq < 64) {
+        seenLo |= bit;
+      } else {
+        seenHi |= bit;
+      }
+    }
+
+    for (Piece piece : army.pieces) {
+      if (piece.position != null) {
+        removePiece(piece);
+        graveyard[piece.id] = piece.position;
+        piece.position = null;
+      }
+    }
+    for (int i = 0; i < squares.length; i++) {
+      Piece piece = army.pieces.get(i);
+      restore(piece, piece.rank, squares[i], piece.alive, piece.revealed);
+    }
     return true;
   }
 
+  // Applies a packed move generated by generateMoves
+  MovementResult move(int move) {
+    Piece piece = cells[Move.from(move)];
+    if (piece == null) {
+      MovementResult res = new MovementResult();
+      res.moved = false;
+      return res;
+    }
+    int to = Move.to(move);
+    return move(piece, Bitboard.x(to), Bitboard.y(to));
+  }
+
   // Movement may result in combat
   MovementResult move(Piece piece, int x, int y) {
     MovementResult res = new MovementResult();
-    if (!piece.movable() || !isInBounds(x, y) || !isValidMove(piece, x, y)) {
+    if (!piece.movable()
+        || !isValidMove(piece, x, y)
+        || isRepetition(piece, Bitboard.index(x, y))) {
       res.moved = false;
       return res;
     }
 
-    if (isOccupiedByOpposite(piece.side, x, y)) {
-      Piece enemy = grid[x][y].piece;
-      Engagement engagement = piece.attack(enemy);
-      switch (engagement) {
-        case Engagement.WIN:
-          killPiece(enemy);
-          movePiece(piece, x, y);
-          break;
-        case Engagement.LOSE:
-          killPiece(piece);
-          break;
-        case Engagement.DRAW:
-          killPiece(piece);
-          killPiece(enemy);
-        default:
-          break;
-      }
-      res.engagement = engagement;
+    res.piece = piece;
+    res.from = Bitboard.index(piece.position.x, piece.position.y);
+    res.to = Bitboard.index(x, y);
+    res.defender = cells[res.to];
+    res.engagement = apply(piece, res.to);
+    history(piece.side).record(res.from, res.to, hash, res.defender != null);
+
+    Side opponent = Side.getOpposite(piece.side);
+    if (hasLost(opponent) || hasOnlyForbiddenMoves(opponent)) {
+      res.gameOver = true;
+      res.winner = hasLost(piece.side) ? Side.NEITHER : piece.side;
+    }
+    return res;
+  }
+
+  // True if the repetition rules forbid a packed move generated by generateMoves
+  boolean isRepetition(int move) {
+    Piece piece = cells[Move.from(move)];
+    return piece != null && isRepetition(piece, Move.to(move));
+  }
+
+  /**
+   * Two-square rule: a piece may not move between the same two squares more than three times in a
+   * row. More-squares rule, approximated by position: a move may not recreate a position the side
+   * has already produced twice within its recent history. Captures are never repetitions.
+   */
+  private boolean isRepetition(Piece piece, int to) {
+    if (cells[to] != null) {
+      return false;
+    }
+    MoveHistory history = history(piece.side);
+    int from = Bitboard.index(piece.position.x, piece.position.y);
+    if (history.isShuttle(from, to)) {
+      return true;
+    }
+    long next = hash ^ Zobrist.key(piece, from) ^ Zobrist.key(piece, to);
+    return history.occurrences(next) >= MoveHistory.MAX_REPEATS;
+  }
+
+  MoveHistory history(Side side) {
+    return side == Side.A ? historyA : historyB;
+  }
+
+  /**
+   * Applies a packed move from a log already known to be legal, skipping validation and undo
+   * bookkeeping.
+   */
+  Engagement replay(int move) {
+    return apply(cells[Move.from(move)], Move.to(move));
+  }
+
+  /**
+   * Applies a legal packed move without validating it and records how to take it back with {@link
+   * #unmakeMove}. Intended for search, which only plays moves from {@link #generateMoves}.
+   *
+   * @return the combat outcome, or {@link Engagement#INVALID} if the target square was empty
+   */
+  Engagement makeMove(int move) {
+    Piece piece = cells[Move.from(move)];
+    Piece enemy = cells[Move.to(move)];
+
+    long info = piece.id | (piece.revealed ? 1L << 14 : 0);
+    info |= enemy == null ? (long) NO_PIECE << 7 : (long) enemy.id << 7;
+    if (enemy != null && enemy.revealed) {
+      info |= 1L << 15;
+    }
+
+    Engagement engagement = apply(piece, Move.to(move));
+    undo.push((info | (long) engagement.ordinal() << 16) << 32 | move);
+    return engagement;
+  }
+
+  // Reverts the most recent makeMove
+  void unmakeMove() {
+    long entry = undo.pop();
+    int move = (int) entry;
+    int info = (int) (entry >>> 32);
+    int from = Move.from(move);
+    int to = Move.to(move);
+
+    Piece piece = roster[info & 0x7F];
+    int enemyId = (info >>> 7) & 0x7F;
+    Engagement engagement = Engagement.values()[(info >>> 16) & 0x3];
+
+    if (piece.alive) {
+      removePiece(piece);
     } else {
-      grid[piece.position.x][piece.position.y].piece = null;
-      piece.position.update(x, y);
-      grid[x][y].piece = piece;
+      revive(piece);
     }
+    piece.position.update(Bitboard.x(from), Bitboard.y(from));
+    putPiece(piece, from);
+    setRevealed(piece, (info & (1 << 14)) != 0);
+
+    if (enemyId != NO_PIECE) {
+      Piece enemy = roster[enemyId];
+      if (engagement != Engagement.LOSE) {
+        revive(enemy);
+        enemy.position.update(Bitboard.x(to), Bitboard.y(to));
+        putPiece(enemy, to);
+      }
+      setRevealed(enemy, (info & (1 << 15)) != 0);
+    }
+  }
 
-    return res;
+  // Moves the piece onto the target square, resolving combat with any enemy there
+  private Engagement apply(Piece piece, int to) {
+    Piece enemy = cells[to];
+    if (enemy == null) {
+      movePiece(piece, to);
+      return Engagement.INVALID;
+    }
+
+    Engagement engagement = piece.attack(enemy);
+    setRevealed(piece, true);
+    setRevealed(enemy, true);
+    switch (engagement) {
+      case Engagement.WIN:
+        killPiece(enemy);
+        movePiece(piece, to);
+        break;
+      case Engagement.LOSE:
+        killPiece(piece);
+        break;
+      case Engagement.DRAW:
+        killPiece(piece);
+        killPiece(enemy);
+      default:
+        break;
+    }
+    return engagement;
   }
 
   private void killPiece(Piece piece) {
     piece.alive = false;
-    grid[piece.position.x][piece.position.y].piece = null;
+    army(piece.side).track(piece, piece.rank, true);
+    removePiece(piece);
+    // Keep the Position so unmakeMove can bring the piece back without allocating
+    graveyard[piece.id] = piece.position;
     piece.position = null;
   }
 
-  private void movePiece(Piece piece, int x, int y) {
-    grid[piece.position.x][piece.position.y].piece = null;
-    piece.position.update(x, y);
-    grid[x][y].piece = piece;
+  private void revive(Piece piece) {
+    piece.alive = true;
+    army(piece.side).track(piece, piece.rank, false);
+    piece.position = graveyard[piece.id];
+  }
+
+  private void movePiece(Piece piece, int to) {
+    removePiece(piece);
+    piece.position.update(Bitboard.x(to), Bitboard.y(to));
+    putPiece(piece, to);
+  }
+
+  private void setRevealed(Piece piece, boolean revealed) {
+    if (piece.revealed != revealed && piece.position != null) {
+      hash ^= Zobrist.revealedKey(piece, Bitboard.index(piece.position.x, piece.position.y));
+    }
+    piece.revealed = revealed;
+  }
+
+  private void putPiece(Piece piece, int sq) {
+    hash ^= Zobrist.key(piece, sq);
+    cells[sq] = piece;
+    occupancy(piece.side).set(sq);
+    occupancy(piece.rank).set(sq);
+    blocked.set(sq);
+    refreshMobility(sq);
+  }
+
+  private void removePiece(Piece piece) {
+    int sq = Bitboard.index(piece.position.x, piece.position.y);
+    hash ^= Zobrist.key(piece, sq);
+    cells[sq] = null;
+    occupancy(piece.side).clear(sq);
+    occupancy(piece.rank).clear(sq);
+    blocked.clear(sq);
+    refreshMobility(sq);
+  }
+
+  // A change on sq can only affect whether the pieces on it and next to it can move
+  private void refreshMobility(int sq) {
+    int x = Bitboard.x(sq);
+    int y = Bitboard.y(sq);
+    updateMobility(sq);
+    if (x > 0) updateMobility(sq - 1);
+    if (x < WIDTH - 1) updateMobility(sq + 1);
+    if (y > 0) updateMobility(sq - WIDTH);
+    if (y < HEIGHT - 1) updateMobility(sq + WIDTH);
+  }
+
+  private void updateMobility(int sq) {
+    mobileA.clear(sq);
+    mobileB.clear(sq);
+    Piece piece = cells[sq];
+    if (piece == null || !piece.movable() || piece.side == Side.NEITHER) {
+      return;
+    }
+    Bitboard own = occupancy(piece.side);
+    Bitboard neighbours = Bitboard.NEIGHBOURS[sq];
+    if (((neighbours.lo & ~(own.lo | LAKES.lo)) | (neighbours.hi & ~(own.hi | LAKES.hi))) != 0) {
+      mobility(piece.side).set(sq);
+    }
   }
 
   private boolean isInBounds(int x, int y) {
@@ -0,0 +1,127 @@
+package game;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Binary snapshot of a {@link Board}.
+ *
+ * <p>The snapshot is a header byte followed by one byte per piece in id order: the low seven bits
+ * hold the piece's square, {@link #OFF_BOARD} or {@link #DEAD}, and the high bit is set when the
+ * piece is revealed. Side follows from the id. Rank is implied by the id as long as every piece
+ * still has the rank {@link Army} gave it. Otherwise, such as in a search determinization, the
+ * header flags {@link #RANKS} and 40 bytes of packed rank nibbles follow.
+ */
+final class BoardCodec {
+  static final int VERSION = 1;
+
+  // Header bit marking an explicit rank table
+  static final int RANKS = 0x10;
+
+  static final int OFF_BOARD = 100;
+  static final int DEAD = 101;
+
+  static final int SIZE = 1 + 2 * Army.SIZE;
+  static final int MAX_SIZE = SIZE + Army.SIZE;
+
+  private static final int REVEALED = 0x80;
+
+  // Rank Army assigns to each index
+  private static final int[] DEFAULT_RANKS = new int[Army.SIZE];
+
+  static {
+    Army army = new Army(Side.NEITHER);
+    for (int i = 0; i < Army.SIZE; i++) {
+      DEFAULT_RANKS[i] = army.pieces.get(i).rank;
+    }
+  }
+
+  private BoardCodec() {}
+
+  static void encode(Board board, ByteBuf out) {
+    boolean defaultRanks = true;
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      if (board.piece(id).rank != DEFAULT_RANKS[id % Army.SIZE]) {
+        defaultRanks = false;
+        break;
+      }
+    }
+
+    out.ensureWritable(defaultRanks ? SIZE : MAX_SIZE);
+    out.writeByte(VERSION | (defaultRanks ? 0 : RANKS));
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      Piece piece = board.piece(id);
+      int sq;
+      if (piece.position != null) {
+        sq = Bitboard.index(piece.position.x, piece.position.y);
+      } else {
+        sq = piece.alive ? OFF_BOARD : DEAD;
+      }
+      out.writeByte(sq | (piece.revealed ? REVEALED : 0));
+    }
+
+    if (!defaultRanks) {
+      for (int id = 0; id < 2 * Army.SIZE; id += 2) {
+        int high = board.piece(id).rank - Piece.FLAG;
+        int low = board.piece(id + 1).rank - Piece.FLAG;
+        out.writeByte(high << 4 | low);
+      }
+    }
+  }
+
+  static Board decode(ByteBuf in) {
+    Board board = new Board();
+    decode(in, board);
+    return board;
+  }
+
+  // Overwrites the board with the snapshot, reusing its pieces. The snapshot is checked whole
+  // first, so the board is left untouched when it is rejected.
+  static void decode(ByteBuf in, Board board) {
+    int header = in.readUnsignedByte();
+    if ((header & 0x0F) != VERSION) {
+      throw new IllegalArgumentException("Unsupported snapshot version: " + (header & 0x0F));
+    }
+
+    int start = in.readerIndex();
+    boolean defaultRanks = (header & RANKS) == 0;
+    int length = defaultRanks ? 2 * Army.SIZE : 3 * Army.SIZE;
+    if (in.readableBytes() < length) {
+      throw new IllegalArgumentException("Truncated snapshot: " + in.readableBytes() + " bytes");
+    }
+
+    Bitboard occupied = new Bitboard();
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      int sq = in.getUnsignedByte(start + id) & ~REVEALED;
+      if (sq > DEAD || rank(in, start, defaultRanks, id) > Piece.MARSHAL) {
+        throw new IllegalArgumentException("Invalid snapshot entry for piece " + id);
+      }
+      if (sq < OFF_BOARD) {
+        if (Board.LAKES.test(sq) || occupied.test(sq)) {
+          throw new IllegalArgumentException("Invalid square " + sq + " for piece " + id);
+        }
+        occupied.set(sq);
+      }
+    }
+
+    board.clear();
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      int value = in.getUnsignedByte(start + id);
+      int sq = value & ~REVEALED;
+      board.restore(
+          board.piece(id),
+          rank(in, start, defaultRanks, id),
+          sq < OFF_BOARD ? sq : -1,
+          sq != DEAD,
+          (value & REVEALED) != 0);
+    }
+    in.skipBytes(length);
+  }
+
+  private static int rank(ByteBuf in, int start, boolean defaultRanks, int id) {
+    if (defaultRanks) {
+      return DEFAULT_RANKS[id % Army.SIZE];
+    }
+    int nibbles = in.getUnsignedByte(start + 2 * Army.SIZE + id / 2);
+    return (id % 2 == 0 ? nibbles >>> 4 : nibbles & 0x0F) + Piece.FLAG;
+  }
+}
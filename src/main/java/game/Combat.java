@@ -0,0 +1,100 @@
+package game;
+
+/**
+ * Precomputed outcome of every attacker rank against every defender rank. Ranks run from {@link
+ * Piece#FLAG} to {@link Piece#MARSHAL}; bombs and flags cannot attack, so their rows are {@link
+ * Engagement#INVALID}.
+ */
+final class Combat {
+  private static final Engagement[] OUTCOMES = Engagement.values();
+  private static final byte[] TABLE = new byte[Piece.RANKS * Piece.RANKS];
+
+  // Per attacker, a bit per defender rank (rank - FLAG) for each outcome
+  private static final int[] WINS = new int[Piece.RANKS];
+  private static final int[] LOSSES = new int[Piece.RANKS];
+  private static final int[] DRAWS = new int[Piece.RANKS];
+
+  static {
+    for (int attacker = Piece.FLAG; attacker <= Piece.MARSHAL; attacker++) {
+      for (int defender = Piece.FLAG; defender <= Piece.MARSHAL; defender++) {
+        Engagement engagement = compute(attacker, defender);
+        int a = attacker - Piece.FLAG;
+        int d = defender - Piece.FLAG;
+        TABLE[a * Piece.RANKS + d] = (byte) engagement.ordinal();
+        switch (engagement) {
+          case WIN -> WINS[a] |= 1 << d;
+          case LOSE -> LOSSES[a] |= 1 << d;
+          case DRAW -> DRAWS[a] |= 1 << d;
+          default -> {}
+        }
+      }
+    }
+  }
+
+  private Combat() {}
+
+  static Engagement resolve(int attacker, int defender) {
+    return OUTCOMES[TABLE[(attacker - Piece.FLAG) * Piece.RANKS + defender - Piece.FLAG]];
+  }
+
+  /**
+   * Returns the subset of candidate defender ranks the attacker beats. Both masks hold a bit per
+   * rank, bit {@code rank - FLAG}.
+   */
+  static int wins(int attacker, int candidates) {
+    return WINS[attacker - Piece.FLAG] & candidates;
+  }
+
+  static int losses(int attacker, int candidates) {
+    return LOSSES[attacker - Piece.FLAG] & candidates;
+  }
+
+  static int draws(int attacker, int candidates) {
+    return DRAWS[attacker - Piece.FLAG] & candidates;
+  }
+
+  /**
+   * Evaluates an attacker against a weighted set of defender ranks at once, such as a belief over
+   * an unrevealed piece.
+   *
+   * @param weights weight per defender rank, indexed by rank - FLAG; need not sum to one
+   * @param out receives the win, lose and draw probabilities, indexed by Engagement ordinal
+   */
+  static void expected(int attacker, double[] weights, double[] out) {
+    int a = attacker - Piece.FLAG;
+    double win = 0;
+    double lose = 0;
+    double draw = 0;
+    for (int d = 0; d < Piece.RANKS; d++) {
+      int bit = 1 << d;
+      if ((WINS[a] & bit) != 0) {
+        win += weights[d];
+      } else if ((LOSSES[a] & bit) != 0) {
+        lose += weights[d];
+      } else if ((DRAWS[a] & bit) != 0) {
+        draw += weights[d];
+      }
+    }
+    double total = win + lose + draw;
+    out[Engagement.WIN.ordinal()] = total > 0 ? win / total : 0;
+    out[Engagement.LOSE.ordinal()] = total > 0 ? lose / total : 0;
+    out[Engagement.DRAW.ordinal()] = total > 0 ? draw / total : 0;
+  }
+
+  private static Engagement compute(int attacker, int defender) {
+    if (attacker == Piece.BOMB || attacker == Piece.FLAG) {
+      return Engagement.INVALID;
+    }
+    if (defender == Piece.BOMB) {
+      return attacker == Piece.MINER ? Engagement.WIN : Engagement.LOSE;
+    }
+    if (attacker == Piece.SPY && defender == Piece.MARSHAL) {
+      return Engagement.WIN;
+    }
+    return switch (Integer.compare(attacker, defender)) {
+      case 1 -> Engagement.WIN;
+      case 0 -> Engagement.DRAW;
+      default -> Engagement.LOSE;
+    };
+  }
+}
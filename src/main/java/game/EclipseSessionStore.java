@@ -0,0 +1,126 @@
+package game;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.serializer.reference.Lazy;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorage;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
+
+/**
+ * {@link SessionStore} on an embedded Eclipse Store. Every game sits behind its own lazy
+ * reference, which is cleared once saved, so stored games cost the heap only their map entry.
+ *
+ * <p>A game is saved by updating its existing {@link StoredGame} in place and storing that object
+ * alone. The storer skips arrays it has already written, such as old checkpoints, so only the
+ * snapshot, the ply array and any new checkpoint reach the disk. A loaded game stays in its
+ * reference until its session hibernates, so a save then does not read the old one back first.
+ *
+ * <p>The persisted map is split into buckets of consecutive ids. A new game is written first and
+ * then added to its bucket, so the store under the lock writes one small bucket rather than every
+ * entry. Lookups go to a concurrent index and never wait for the disk, so event loops resolving
+ * game ids are not held up by a save.
+ */
+final class EclipseSessionStore implements SessionStore {
+  static final int BUCKET_SIZE = 1024;
+
+  static final class Root {
+    // Keyed by id / BUCKET_SIZE
+    final Map<Long, Map<Long, Lazy<StoredGame>>> buckets = new HashMap<>();
+  }
+
+  private final EmbeddedStorageManager storage;
+  private final Root root;
+  private final ConcurrentHashMap<Long, Lazy<StoredGame>> index = new ConcurrentHashMap<>();
+  private final AtomicLong lastId = new AtomicLong();
+
+  // Guards the buckets; a lock rather than a monitor so waiting virtual threads keep no carrier
+  private final ReentrantLock lock = new ReentrantLock();
+
+  EclipseSessionStore(Path directory) {
+    storage = EmbeddedStorage.start(directory);
+    if (storage.root() == null) {
+      storage.setRoot(new Root());
+      storage.storeRoot();
+    }
+    root = (Root) storage.root();
+    for (Map<Long, Lazy<StoredGame>> bucket : root.buckets.values()) {
+      index.putAll(bucket);
+      for (long id : bucket.keySet()) {
+        lastId.accumulateAndGet(id, Math::max);
+      }
+    }
+  }
+
+  @Override
+  public void save(long id, StoredGame game) {
+    Lazy<StoredGame> ref = index.get(id);
+    if (ref == null) {
+      ref = Lazy.Reference(game);
+      storage.store(ref);
+      add(id, ref);
+      index.put(id, ref);
+      lastId.accumulateAndGet(id, Math::max);
+    } else {
+      StoredGame stored = ref.get();
+      stored.update(game);
+      storage.store(stored);
+    }
+    ref.clear();
+  }
+
+  // Adds a stored game to its bucket and writes the bucket, or the bucket map for a new bucket
+  private void add(long id, Lazy<StoredGame> ref) {
+    lock.lock();
+    try {
+      Map<Long, Lazy<StoredGame>> bucket = root.buckets.get(id / BUCKET_SIZE);
+      if (bucket == null) {
+        bucket = new HashMap<>();
+        bucket.put(id, ref);
+        root.buckets.put(id / BUCKET_SIZE, bucket);
+        storage.store(root.buckets);
+      } else {
+        bucket.put(id, ref);
+        storage.store(bucket);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(long id) {
+    return index.containsKey(id);
+  }
+
+  @Override
+  public StoredGame load(long id) {
+    Lazy<StoredGame> ref = index.get(id);
+    if (ref == null) {
+      return null;
+    }
+    // Left loaded until the session hibernates, which saves or releases it
+    return ref.get();
+  }
+
+  @Override
+  public void release(long id) {
+    Lazy<StoredGame> ref = index.get(id);
+    if (ref != null) {
+      ref.clear();
+    }
+  }
+
+  @Override
+  public long lastId() {
+    return lastId.get();
+  }
+
+  @Override
+  public void close() {
+    storage.shutdown();
+  }
+}
@@ -0,0 +1,119 @@
+package game;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+
+/**
+ * Append-only record of a game: one int per ply holding the packed move and its combat outcome,
+ * plus a {@link BoardCodec} snapshot every {@code interval} plies. Rebuilding the position at any
+ * ply decodes the nearest earlier checkpoint and replays fewer than {@code interval} moves.
+ */
+final class GameRecord {
+  static final int DEFAULT_INTERVAL = 32;
+
+  private final int interval;
+  private int[] plies = new int[64];
+  private int size;
+  private byte[][] checkpoints = new byte[4][];
+
+  GameRecord(Board start) {
+    this(start, DEFAULT_INTERVAL);
+  }
+
+  GameRecord(Board start, int interval) {
+    this.interval = interval;
+    checkpoints[0] = snapshot(start);
+  }
+
+  // Rebuilds a record from the arrays returned by plies and checkpoints
+  GameRecord(int interval, int[] plies, byte[][] checkpoints) {
+    this.interval = interval;
+    this.size = plies.length;
+    this.plies = Arrays.copyOf(plies, Math.max(64, size));
+    this.checkpoints = Arrays.copyOf(checkpoints, Math.max(4, checkpoints.length));
+  }
+
+  /** Appends a played move; board must be the position after it. */
+  void append(MovementResult result, Board board) {
+    if (!result.moved) {
+      throw new IllegalArgumentException("Only moves that were played can be recorded");
+    }
+    int move = Move.encode(result.from, result.to, result.defender != null ? Move.CAPTURE : 0);
+    if (size == plies.length) {
+      plies = Arrays.copyOf(plies, size * 2);
+    }
+    plies[size++] = move | result.engagement.ordinal() << 16;
+
+    if (size % interval == 0) {
+      int k = size / interval;
+      if (k == checkpoints.length) {
+        checkpoints = Arrays.copyOf(checkpoints, k * 2);
+      }
+      checkpoints[k] = snapshot(board);
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  int interval() {
+    return interval;
+  }
+
+  // Recorded plies, trimmed to size
+  int[] plies() {
+    return Arrays.copyOf(plies, size);
+  }
+
+  // Checkpoint snapshots taken so far; the snapshots themselves are shared, not copied
+  byte[][] checkpoints() {
+    return Arrays.copyOf(checkpoints, size / interval + 1);
+  }
+
+  int move(int ply) {
+    return plies[ply] & 0xFFFF;
+  }
+
+  Engagement engagement(int ply) {
+    return Engagement.values()[plies[ply] >>> 16];
+  }
+
+  /** Rebuilds the position after the given number of plies on the trusted fast path. */
+  Board replay(int ply) {
+    return replay(ply, false);
+  }
+
+  /**
+   * Rebuilds the position after the given number of plies. With validate set, every move goes
+   * through {@link Board#move} and must reproduce the recorded outcome.
+   */
+  Board replay(int ply, boolean validate) {
+    if (ply < 0 || ply > size) {
+      throw new IndexOutOfBoundsException("Ply " + ply + " of " + size);
+    }
+
+    int k = ply / interval;
+    Board board = BoardCodec.decode(Unpooled.wrappedBuffer(checkpoints[k]));
+    for (int i = k * interval; i < ply; i++) {
+      if (!validate) {
+        board.replay(move(i));
+        continue;
+      }
+      MovementResult result = board.move(move(i));
+      if (!result.moved || result.engagement != engagement(i)) {
+        throw new IllegalStateException("Record diverges from the rules at ply " + i);
+      }
+    }
+    return board;
+  }
+
+  static byte[] snapshot(Board board) {
+    ByteBuf buf = Unpooled.buffer(BoardCodec.MAX_SIZE);
+    BoardCodec.encode(board, buf);
+    byte[] bytes = new byte[buf.readableBytes()];
+    buf.readBytes(bytes);
+    return bytes;
+  }
+}
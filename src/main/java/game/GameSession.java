@@ -0,0 +1,348 @@
+package game;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * A live game. The board is not thread-safe, so every command runs on the session's {@link
+ * Mailbox} and touches the board from one thread at a time without locks; callers get a future
+ * completed on that thread.
+ *
+ * <p>With a {@link SessionStore}, an idle session can {@link #hibernate}: it saves its state if it
+ * changed and drops the board, keeping only this small shell. The next command loads the state
+ * back before it runs, so holders of the session never notice.
+ *
+ * <p>Each side has a random token, handed to its player by whoever created the game; {@link
+ * #admits} checks it before a client may play that side.
+ *
+ * <p>Listeners subscribe as one of the viewers of {@link ViewProjection} and receive its frames:
+ * the visible state on subscribing, then a delta for every move.
+ */
+public final class GameSession {
+  /** Receives the frames of one viewer. Takes ownership of each buffer it is given. */
+  @FunctionalInterface
+  public interface Listener {
+    void send(ByteBuf frame);
+
+    /** Called after the delta of the final move, when the listener has been unsubscribed. */
+    default void ended() {}
+  }
+
+  private static final SecureRandom TOKENS = new SecureRandom();
+
+  private final long id;
+  private final Mailbox mailbox;
+  private final SessionStore store;
+
+  // Time of the latest submitted command, from System.nanoTime
+  private volatile long lastActive = System.nanoTime();
+
+  // Whether the board is loaded, for the sweeper deciding whom to hibernate
+  private volatile boolean awake;
+
+  // Subscribed listeners and whether the game ended, for the sweeper deciding whom to drop
+  private volatile int watchers;
+  private volatile boolean finished;
+
+  // Set once the manager dropped the session, so a lookup racing with the drop looks again
+  private volatile boolean retired;
+
+  // Only read and written by commands on the mailbox; board and record are null while hibernated
+  private Board board;
+  private GameRecord record;
+  private Side turn = Side.A;
+  private boolean over;
+  private Side winner = Side.NEITHER;
+  private boolean dirty = true;
+  private ViewProjection view;
+
+  // Token of each side, indexed by Side ordinal; set on creation, or loaded on waking
+  private String[] tokens;
+
+  // Subscribed listeners indexed by viewer ordinal; kept while hibernated
+  private final List<List<Listener>> listeners = new ArrayList<>(ViewProjection.VIEWERS);
+  private final ByteBuf[] deltas = new ByteBuf[ViewProjection.VIEWERS];
+
+  GameSession(long id, Board board, Executor executor, SessionStore store) {
+    this.id = id;
+    this.board = board;
+    this.record = board == null ? null : new GameRecord(board);
+    this.view = board == null ? null : new ViewProjection(board);
+    this.tokens = board == null ? null : new String[] {newToken(), newToken()};
+    for (int v = 0; v < ViewProjection.VIEWERS; v++) {
+      listeners.add(new ArrayList<>());
+    }
+    this.awake = board != null;
+    this.mailbox = new Mailbox(executor);
+    this.store = store;
+  }
+
+  // A hibernated session for a game in the store
+  static GameSession stored(long id, Executor executor, SessionStore store) {
+    GameSession session = new GameSession(id, null, executor, store);
+    session.dirty = false;
+    return session;
+  }
+
+  public long id() {
+    return id;
+  }
+
+  /**
+   * The token a client must present to play the side. Only for the creator of the game to hand
+   * out right after creating it, as a hibernated session does not hold its tokens.
+   */
+  public String token(Side side) {
+    return tokens[side.ordinal()];
+  }
+
+  /** Completes with whether the token is the one of the side, a player side. */
+  public CompletableFuture<Boolean> admits(Side side, String token) {
+    return submit(
+        session ->
+            side != Side.NEITHER
+                && token != null
+                && tokens != null
+                && MessageDigest.isEqual(
+                    tokens[side.ordinal()].getBytes(StandardCharsets.US_ASCII),
+                    token.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private static String newToken() {
+    byte[] bytes = new byte[16];
+    TOKENS.nextBytes(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /**
+   * Moves the side's piece between two squares, indexed like {@link Bitboard}. The move is
+   * rejected, with {@code moved} false, if it is not the side's turn, the game is over or the rules
+   * forbid it.
+   */
+  public CompletableFuture<MovementResult> move(Side side, int from, int to) {
+    return submit(session -> session.play(side, from, to));
+  }
+
+  /**
+   * Subscribes a listener as a viewer: a side, or {@link Side#NEITHER} for a spectator. It receives
+   * that viewer's current state first and then the delta of every move.
+   */
+  public CompletableFuture<Void> subscribe(Side viewer, Listener listener) {
+    return submit(
+        session -> {
+          sendView(viewer, listener);
+          listeners.get(viewer.ordinal()).add(listener);
+          watchers++;
+          return null;
+        });
+  }
+
+  /**
+   * Sends the viewer's current state to a listener that is not subscribed, such as one relaying
+   * frames to many channels that joins a channel to its audience. The frame is sent on the
+   * session's thread, so no delta published after it can be sent before it.
+   */
+  public CompletableFuture<Void> view(Side viewer, Listener listener) {
+    return submit(
+        session -> {
+          sendView(viewer, listener);
+          return null;
+        });
+  }
+
+  public CompletableFuture<Void> unsubscribe(Side viewer, Listener listener) {
+    // Only touches the listener lists, so a hibernated game stays asleep
+    return CompletableFuture.runAsync(
+        () -> {
+          if (listeners.get(viewer.ordinal()).remove(listener)) {
+            watchers--;
+          }
+        },
+        mailbox);
+  }
+
+  /** Runs a command on the session's thread; the command may use the board freely. */
+  <T> CompletableFuture<T> submit(Function<GameSession, T> command) {
+    touch();
+    return CompletableFuture.supplyAsync(
+        () -> {
+          wake();
+          return command.apply(this);
+        },
+        mailbox);
+  }
+
+  long lastActive() {
+    return lastActive;
+  }
+
+  // Counts as activity, so the sweeper keeps the session
+  void touch() {
+    lastActive = System.nanoTime();
+  }
+
+  /**
+   * Marks the session as dropped by its manager, unless it is awake, used since the cutoff or
+   * watched in a game still running. Only called while the manager holds the session's map entry.
+   */
+  boolean retire(long cutoff) {
+    if (awake || (watchers > 0 && !finished)) {
+      return false;
+    }
+    retired = true;
+    // A lookup touches before it checks retired, so either it sees the flag or this sees it
+    if (lastActive - cutoff >= 0) {
+      retired = false;
+      return false;
+    }
+    return true;
+  }
+
+  boolean isRetired() {
+    return retired;
+  }
+
+  boolean isAwake() {
+    return awake;
+  }
+
+  /**
+   * Saves the game if it changed since it was last saved and releases the board. Does not count as
+   * activity.
+   *
+   * @return a future completing with false if the session was already hibernated
+   */
+  CompletableFuture<Boolean> hibernate() {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          if (board == null) {
+            return false;
+          }
+          if (dirty) {
+            store.save(id, new StoredGame(board, record, turn, over, winner, tokens));
+            dirty = false;
+          } else {
+            store.release(id);
+          }
+          board = null;
+          record = null;
+          view = null;
+          awake = false;
+          return true;
+        },
+        mailbox);
+  }
+
+  private void sendView(Side viewer, Listener listener) {
+    ByteBuf frame = ByteBufAllocator.DEFAULT.buffer(ViewProjection.VIEW_SIZE);
+    view.view(viewer, frame);
+    listener.send(frame);
+  }
+
+  private void wake() {
+    if (board != null) {
+      return;
+    }
+    StoredGame stored = store.load(id);
+    if (stored == null) {
+      throw new IllegalStateException("Game " + id + " is missing from the store");
+    }
+    board = stored.board();
+    record = stored.record();
+    turn = stored.turn;
+    over = stored.over;
+    winner = stored.winner;
+    finished = over;
+    tokens = stored.tokens;
+    view = new ViewProjection(board);
+    awake = true;
+  }
+
+  // The following accessors are only safe inside a command
+
+  Board board() {
+    return board;
+  }
+
+  GameRecord record() {
+    return record;
+  }
+
+  Side turn() {
+    return turn;
+  }
+
+  boolean isOver() {
+    return over;
+  }
+
+  Side winner() {
+    return winner;
+  }
+
+  private MovementResult play(Side side, int from, int to) {
+    Piece piece =
+        from >= 0 && from < Bitboard.SQUARES
+            ? board.getPiece(Bitboard.x(from), Bitboard.y(from)).orElse(null)
+            : null;
+    if (over || side != turn || piece == null || piece.side != side) {
+      MovementResult res = new MovementResult();
+      res.moved = false;
+      return res;
+    }
+
+    MovementResult res = board.move(piece, Bitboard.x(to), Bitboard.y(to));
+    if (res.moved) {
+      dirty = true;
+      record.append(res, board);
+      turn = Side.getOpposite(side);
+      if (res.gameOver) {
+        over = true;
+        finished = true;
+        winner = res.winner;
+      }
+      publish(res);
+      if (over) {
+        // Nothing follows the final delta, so let go of every listener
+        for (List<Listener> viewers : listeners) {
+          for (Listener listener : viewers) {
+            listener.ended();
+          }
+          viewers.clear();
+        }
+        watchers = 0;
+      }
+    }
+    return res;
+  }
+
+  // Encodes the move once per viewer with listeners and hands every listener a duplicate
+  private void publish(MovementResult res) {
+    for (int v = 0; v < ViewProjection.VIEWERS; v++) {
+      deltas[v] =
+          listeners.get(v).isEmpty()
+              ? null
+              : ByteBufAllocator.DEFAULT.buffer(ViewProjection.MAX_DELTA_SIZE);
+    }
+    view.update(res, deltas);
+    for (int v = 0; v < ViewProjection.VIEWERS; v++) {
+      if (deltas[v] == null) {
+        continue;
+      }
+      for (Listener listener : listeners.get(v)) {
+        listener.send(deltas[v].retainedDuplicate());
+      }
+      deltas[v].release();
+      deltas[v] = null;
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package game;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Computer opponent using Information-Set Monte Carlo Tree Search.
+ *
+ * <p>Every iteration samples a determinization by shuffling the ranks of the opponent's unrevealed
+ * pieces among those pieces, or by drawing them from a {@link Belief} when one is given. It then
+ * walks a tree shared by all determinizations, expands one move and plays random moves until a
+ * flag falls, a side cannot move or a ply limit is reached.
+ *
+ * <p>Search is root-parallel: each worker grows its own tree on its own copy of the board and the
+ * root visit counts are summed once the time budget runs out. Workers run on a shared {@link
+ * ForkJoinPool}, so many concurrent searches share the cores instead of each starting threads.
+ */
+public class IsmctsBot {
+  private static final double EXPLORATION = 0.7;
+  private static final int PLAYOUT_PLIES = 200;
+
+  private final Duration budget;
+  private final int workers;
+  private final ForkJoinPool pool;
+
+  public IsmctsBot(Duration budget) {
+    this(budget, Runtime.getRuntime().availableProcessors(), ForkJoinPool.commonPool());
+  }
+
+  public IsmctsBot(Duration budget, int workers, ForkJoinPool pool) {
+    this.budget = budget;
+    this.workers = workers;
+    this.pool = pool;
+  }
+
+  /**
+   * Searches for the best move of the given side until the time budget is spent. The board is only
+   * read while the workers copy it, before this method starts waiting.
+   *
+   * @return the packed move, or {@link Move#NONE} if the side cannot move
+   */
+  int chooseMove(Board board, Side side) {
+    return chooseMove(board, side, null);
+  }
+
+  /**
+   * Like {@link #chooseMove(Board, Side)}, but samples hidden ranks from the side's belief about
+   * the enemy instead of shuffling them uniformly.
+   */
+  int chooseMove(Board board, Side side, Belief belief) {
+    int[] moves = new int[Move.MAX_MOVES];
+    int count = 0;
+    for (int i = 0, n = board.generateMoves(side, moves); i < n; i++) {
+      if (!board.isRepetition(moves[i])) {
+        moves[count++] = moves[i];
+      }
+    }
+    if (count <= 1) {
+      return count == 0 ? Move.NONE : moves[0];
+    }
+
+    long deadline = System.nanoTime() + budget.toNanos();
+    SplittableRandom random = new SplittableRandom();
+    List<ForkJoinTask<Node>> tasks = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      Search search =
+          new Search(
+              board.copy(), side, belief == null ? null : belief.copy(), deadline, random.split());
+      tasks.add(pool.submit(search::run));
+    }
+
+    Map<Integer, Integer> visits = new HashMap<>();
+    for (ForkJoinTask<Node> task : tasks) {
+      for (Node child : task.join().children) {
+        visits.merge(child.move, child.visits, Integer::sum);
+      }
+    }
+
+    int best = moves[0];
+    int bestVisits = -1;
+    for (Map.Entry<Integer, Integer> entry : visits.entrySet()) {
+      // Workers search on copies without move history, so skip moves the real board forbids
+      if (entry.getValue() > bestVisits && !board.isRepetition(entry.getKey())) {
+        best = entry.getKey();
+        bestVisits = entry.getValue();
+      }
+    }
+    return best;
+  }
+
+  private static final class Node {
+    final int move;
+    final Node parent;
+    final Side mover;
+    final List<Node> children = new ArrayList<>();
+    int visits;
+    int availability = 1;
+    double wins;
+
+    Node(int move, Node parent, Side mover) {
+      this.move = move;
+      this.parent = parent;
+      this.mover = mover;
+    }
+  }
+
+  private static final class Search {
+    private final Board board;
+    private final Side root;
+    private final Belief belief;
+    private final long deadline;
+    private final SplittableRandom random;
+    private final Node tree;
+
+    private final int[] moves = new int[Move.MAX_MOVES];
+    private final int[] untried = new int[Move.MAX_MOVES];
+
+    // One bit per (from, to) pair marking the moves legal in the current determinization
+    private final long[] legal = new long[(1 << 14) / 64];
+
+    private final Piece[] hidden;
+    private final int[] hiddenRanks;
+
+    Search(Board board, Side root, Belief belief, long deadline, SplittableRandom random) {
+      this.board = board;
+      this.root = root;
+      this.belief = belief;
+      this.deadline = deadline;
+      this.random = random;
+      this.tree = new Node(Move.NONE, null, Side.getOpposite(root));
+
+      List<Piece> unknown = new ArrayList<>();
+      for (int id = 0; id < 2 * Army.SIZE; id++) {
+        Piece piece = board.piece(id);
+        if (piece.side != root && !piece.revealed && piece.position != null) {
+          unknown.add(piece);
+        }
+      }
+      if (belief != null) {
+        // Most constrained first, as Belief.sample expects
+        unknown.sort(Comparator.comparingInt(p -> Integer.bitCount(belief.candidates(p))));
+      }
+      hidden = unknown.toArray(new Piece[0]);
+      hiddenRanks = new int[hidden.length];
+      for (int i = 0; i < hidden.length; i++) {
+        hiddenRanks[i] = hidden[i].rank;
+      }
+    }
+
+    Node run() {
+      do {
+        iterate();
+      } while (System.nanoTime() < deadline);
+      return tree;
+    }
+
+    private void iterate() {
+      determinize();
+
+      Node node = tree;
+      Side side = root;
+      int made = 0;
+      while (!board.hasLost(side)) {
+        int count = board.generateMoves(side, moves);
+        if (count == 0) {
+          break;
+        }
+        Node next = select(node, side, count);
+        board.makeMove(next.move);
+        made++;
+        node = next;
+        side = Side.getOpposite(side);
+        if (next.visits == 0) {
+          break; // Newly expanded
+        }
+      }
+
+      double value = playout(side);
+      for (; made > 0; made--) {
+        board.unmakeMove();
+      }
+
+      for (; node != null; node = node.parent) {
+        node.visits++;
+        node.wins += node.mover == root ? value : 1 - value;
+      }
+    }
+
+    // Gives the opponent's unrevealed pieces a random assignment of the ranks they may have
+    private void determinize() {
+      if (belief != null) {
+        belief.sample(hidden, hiddenRanks, random);
+      } else {
+        shuffle();
+      }
+      for (int i = 0; i < hidden.length; i++) {
+        board.setRank(hidden[i], hiddenRanks[i]);
+      }
+    }
+
+    private void shuffle() {
+      for (int i = hiddenRanks.length - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int rank = hiddenRanks[i];
+        hiddenRanks[i] = hiddenRanks[j];
+        hiddenRanks[j] = rank;
+      }
+    }
+
+    // Picks the best child legal in this determinization, or expands an untried move
+    private Node select(Node node, Side side, int count) {
+      for (int i = 0; i < count; i++) {
+        int key = key(moves[i]);
+        legal[key >>> 6] |= 1L << key;
+      }
+
+      Node best = null;
+      double bestScore = Double.NEGATIVE_INFINITY;
+      for (Node child : node.children) {
+        int key = key(child.move);
+        if ((legal[key >>> 6] & (1L << key)) == 0) {
+          continue;
+        }
+        legal[key >>> 6] &= ~(1L << key); // Tried; what stays set is untried
+        child.availability++;
+        double score =
+            child.wins / child.visits
+                + EXPLORATION * Math.sqrt(Math.log(child.availability) / child.visits);
+        if (score > bestScore) {
+          best = child;
+          bestScore = score;
+        }
+      }
+
+      int untriedCount = 0;
+      for (int i = 0; i < count; i++) {
+        int key = key(moves[i]);
+        if ((legal[key >>> 6] & (1L << key)) != 0) {
+          untried[untriedCount++] = moves[i];
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        legal[key(moves[i]) >>> 6] = 0;
+      }
+
+      if (untriedCount > 0) {
+        Node child = new Node(untried[random.nextInt(untriedCount)], node, side);
+        node.children.add(child);
+        return child;
+      }
+      return best;
+    }
+
+    // Plays random moves from the current position and returns the result for the root side
+    private double playout(Side side) {
+      int plies = 0;
+      double value;
+      while (true) {
+        int count = board.hasLost(side) ? 0 : board.generateMoves(side, moves);
+        if (count == 0) {
+          value = side == root ? 0 : 1;
+          break;
+        }
+        if (plies == PLAYOUT_PLIES) {
+          value = evaluate();
+          break;
+        }
+        board.makeMove(moves[random.nextInt(count)]);
+        plies++;
+        side = Side.getOpposite(side);
+      }
+      for (; plies > 0; plies--) {
+        board.unmakeMove();
+      }
+      return value;
+    }
+
+    private double evaluate() {
+      int own = board.army(root).material();
+      int opponent = board.army(Side.getOpposite(root)).material();
+      return 0.5 + 0.5 * (own - opponent) / Math.max(1, own + opponent);
+    }
+
+    // Origin and target of a move without its flags, which differ between determinizations
+    private static int key(int move) {
+      return move & 0x3FFF;
+    }
+  }
+}
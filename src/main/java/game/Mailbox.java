@@ -0,0 +1,54 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs submitted tasks one at a time, in submission order, on a shared executor. At most one drain
+ * is scheduled at any moment, so tasks of one mailbox never overlap while any number of mailboxes
+ * share the executor's threads.
+ */
+final class Mailbox implements Executor {
+  // Tasks run per drain before yielding the thread to other mailboxes
+  static final int BATCH = 64;
+
+  private final Executor executor;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  Mailbox(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    tasks.add(task);
+    schedule();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    try {
+      for (int i = 0; i < BATCH; i++) {
+        Runnable task = tasks.poll();
+        if (task == null) {
+          break;
+        }
+        task.run();
+      }
+    } finally {
+      scheduled.set(false);
+      // A task added after the last poll but before the flag cleared would otherwise be stranded
+      if (!tasks.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+}
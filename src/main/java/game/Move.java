@@ -0,0 +1,37 @@
+package game;
+
+/**
+ * Moves packed into a single int: bits 0..6 hold the origin square, bits 7..13 the target square
+ * and the remaining bits the flags. Squares are indexed like {@link Bitboard}.
+ */
+final class Move {
+  static final int NONE = 0;
+
+  // Target square holds an enemy piece
+  static final int CAPTURE = 1;
+
+  // Upper bound on moves for one side: 25 one-step pieces plus 8 scouts with up to 18 targets
+  static final int MAX_MOVES = 256;
+
+  private Move() {}
+
+  static int encode(int from, int to, int flags) {
+    return from | (to << 7) | (flags << 14);
+  }
+
+  static int from(int move) {
+    return move & 0x7F;
+  }
+
+  static int to(int move) {
+    return (move >>> 7) & 0x7F;
+  }
+
+  static int flags(int move) {
+    return move >>> 14;
+  }
+
+  static boolean isCapture(int move) {
+    return (flags(move) & CAPTURE) != 0;
+  }
+}
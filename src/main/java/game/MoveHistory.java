@@ -0,0 +1,94 @@
+package game;
+
+/**
+ * Bounded history of one side's recent moves and the positions they produced, for the repetition
+ * rules in {@link Board#move}. Both buffers are fixed-size rings, so checks never look further back
+ * than {@link #WINDOW} positions however long the game runs.
+ */
+final class MoveHistory {
+  static final int WINDOW = 32;
+
+  // A position may arise this many times from the side's own moves within the window
+  static final int MAX_REPEATS = 2;
+
+  // Two-square rule: at most this many consecutive moves between the same two squares
+  static final int MAX_SHUTTLES = 3;
+
+  private final int[] moves = new int[MAX_SHUTTLES];
+  private int moveCount;
+
+  private final long[] positions = new long[WINDOW];
+  private int positionCount;
+
+  /**
+   * Records a move and the position it produced. Captures cannot be undone by later moves, so they
+   * forget all earlier positions.
+   */
+  void record(int from, int to, long position, boolean capture) {
+    moves[moveCount++ % MAX_SHUTTLES] = from | to << 7;
+    if (capture) {
+      positionCount = 0;
+    }
+    positions[positionCount++ % WINDOW] = position;
+  }
+
+  /**
+   * True if moving from one square to another would be the fourth consecutive move between the
+   * same two squares.
+   */
+  boolean isShuttle(int from, int to) {
+    if (moveCount < MAX_SHUTTLES) {
+      return false;
+    }
+    int forward = from | to << 7;
+    int back = to | from << 7;
+    // Oldest to newest the last three moves must read back, forward, back
+    return moves[(moveCount - 3) % MAX_SHUTTLES] == back
+        && moves[(moveCount - 2) % MAX_SHUTTLES] == forward
+        && moves[(moveCount - 1) % MAX_SHUTTLES] == back;
+  }
+
+  // How often the position arose from the side's moves within the window
+  int occurrences(long position) {
+    int n = 0;
+    for (int i = Math.max(0, positionCount - WINDOW); i < positionCount; i++) {
+      if (positions[i % WINDOW] == position) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  // The moves still in the ring, oldest first, for saving a hibernated game
+  int[] moves() {
+    int n = Math.min(moveCount, MAX_SHUTTLES);
+    int[] out = new int[n];
+    for (int i = 0; i < n; i++) {
+      out[i] = moves[(moveCount - n + i) % MAX_SHUTTLES];
+    }
+    return out;
+  }
+
+  // The positions still in the window, oldest first
+  long[] positions() {
+    int n = Math.min(positionCount, WINDOW);
+    long[] out = new long[n];
+    for (int i = 0; i < n; i++) {
+      out[i] = positions[(positionCount - n + i) % WINDOW];
+    }
+    return out;
+  }
+
+  // Refills the rings from the arrays returned by moves and positions
+  void restore(int[] moves, long[] positions) {
+    System.arraycopy(moves, 0, this.moves, 0, moves.length);
+    moveCount = moves.length;
+    System.arraycopy(positions, 0, this.positions, 0, positions.length);
+    positionCount = positions.length;
+  }
+
+  void clear() {
+    moveCount = 0;
+    positionCount = 0;
+  }
+}
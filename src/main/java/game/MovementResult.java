@@ -3,4 +3,18 @@ package game;
 public class MovementResult {
   boolean moved = true;
   Engagement engagement = Engagement.INVALID;
+
+  // Set when this move ended the game; winner is NEITHER for a draw
+  boolean gameOver;
+  Side winner = Side.NEITHER;
+
+  // What happened, for observers such as Belief; squares are indexed like Bitboard
+  Piece piece;
+  Piece defender;
+  int from;
+  int to;
+
+  public boolean moved() {
+    return moved;
+  }
 }
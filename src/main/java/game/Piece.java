@@ -6,8 +6,14 @@ public class Piece {
   public static final int FLAG = -1;
   public static final int SPY = 1;
   public static final int SCOUT = 2;
+  public static final int MINER = 3;
+  public static final int MARSHAL = 10;
+
+  // Number of distinct ranks, FLAG through MARSHAL
+  public static final int RANKS = MARSHAL - FLAG + 1;
 
   public int rank;
+  int id;
   boolean revealed = false;
   boolean alive = true;
   Position position;
@@ -22,39 +28,10 @@ public class Piece {
   }
 
   Engagement attack(Piece target) {
-    return switch (this.rank) {
-      case BOMB, FLAG -> throw new RuntimeException("Piece cannot attack");
-      case 3 ->
-          switch (target.rank) {
-            case BOMB -> Engagement.WIN;
-            default ->
-                switch (Integer.compare(this.rank, target.rank)) {
-                  case 1 -> Engagement.WIN;
-                  case 0 -> Engagement.DRAW;
-                  default -> Engagement.LOSE;
-                };
-          };
-      case SPY ->
-          switch (target.rank) {
-            case BOMB -> Engagement.LOSE;
-            case 10 -> Engagement.WIN;
-            default ->
-                switch (Integer.compare(this.rank, target.rank)) {
-                  case 1 -> Engagement.WIN;
-                  case 0 -> Engagement.DRAW;
-                  default -> Engagement.LOSE;
-                };
-          };
-      default ->
-          switch (target.rank) {
-            case BOMB -> Engagement.LOSE;
-            default ->
-                switch (Integer.compare(this.rank, target.rank)) {
-                  case 1 -> Engagement.WIN;
-                  case 0 -> Engagement.DRAW;
-                  default -> Engagement.LOSE;
-                };
-          };
-    };
+    Engagement engagement = Combat.resolve(this.rank, target.rank);
+    if (engagement == Engagement.INVALID) {
+      throw new RuntimeException("Piece cannot attack");
+    }
+    return engagement;
   }
 }
@@ -0,0 +1,163 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays complete games between two move policies from random legal setups, spread over a pool of
+ * threads, and reports throughput and results. Doubles as a rules-engine benchmark:
+ *
+ * <pre>
+ * ./mvnw exec:java -Dexec.mainClass=game.SelfPlay -Dexec.args="10000"
+ * </pre>
+ */
+public class SelfPlay {
+  // Games still running after this many plies are scored as draws
+  static final int MAX_PLIES = 2000;
+
+  /** Picks one of the generated moves for the side to move. */
+  @FunctionalInterface
+  public interface MovePolicy {
+    int choose(Board board, Side side, int[] moves, int count, SplittableRandom random);
+  }
+
+  public static final MovePolicy RANDOM =
+      (board, side, moves, count, random) -> moves[random.nextInt(count)];
+
+  // Attacks whenever it can, otherwise moves at random
+  public static final MovePolicy AGGRESSIVE =
+      (board, side, moves, count, random) -> {
+        int start = random.nextInt(count);
+        for (int i = 0; i < count; i++) {
+          int move = moves[(start + i) % count];
+          if (Move.isCapture(move)) {
+            return move;
+          }
+        }
+        return moves[start];
+      };
+
+  public record Report(
+      int games, long plies, int winsA, int winsB, int draws, long elapsedNanos) {
+
+    public double gamesPerSecond() {
+      return games / (elapsedNanos / 1e9);
+    }
+
+    public double pliesPerSecond() {
+      return plies / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d games, %d plies in %.2fs: %.0f games/s, %.0f plies/s; A %d, B %d, draws %d",
+          games,
+          plies,
+          elapsedNanos / 1e9,
+          gamesPerSecond(),
+          pliesPerSecond(),
+          winsA,
+          winsB,
+          draws);
+    }
+  }
+
+  private final MovePolicy policyA;
+  private final MovePolicy policyB;
+  private final int threads;
+
+  public SelfPlay(MovePolicy policyA, MovePolicy policyB, int threads) {
+    this.policyA = policyA;
+    this.policyB = policyB;
+    this.threads = threads;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    Report report = new SelfPlay(RANDOM, RANDOM, threads).run(games, System.nanoTime());
+    System.out.println(report);
+  }
+
+  public Report run(int games, long seed) throws Exception {
+    AtomicInteger next = new AtomicInteger();
+    SplittableRandom root = new SplittableRandom(seed);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    try {
+      List<Future<long[]>> workers = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        SplittableRandom random = root.split();
+        workers.add(executor.submit(() -> playUntil(games, next, random)));
+      }
+
+      long[] totals = new long[4];
+      for (Future<long[]> worker : workers) {
+        long[] counts = worker.get();
+        for (int i = 0; i < totals.length; i++) {
+          totals[i] += counts[i];
+        }
+      }
+      return new Report(
+          games,
+          totals[0],
+          (int) totals[1],
+          (int) totals[2],
+          (int) totals[3],
+          System.nanoTime() - start);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  // Plays games until the shared counter reaches the total; returns plies, A wins, B wins, draws
+  private long[] playUntil(int games, AtomicInteger next, SplittableRandom random) {
+    long[] counts = new long[4];
+    int[] moves = new int[Move.MAX_MOVES];
+    SetupGenerator setupA = new SetupGenerator(Side.A);
+    SetupGenerator setupB = new SetupGenerator(Side.B);
+    while (next.getAndIncrement() < games) {
+      Board board = new Board();
+      setupA.setup(board, board.A, random);
+      setupB.setup(board, board.B, random);
+
+      Side winner = Side.NEITHER;
+      Side side = Side.A;
+      int plies = 0;
+      while (plies < MAX_PLIES) {
+        int count = 0;
+        for (int i = 0, n = board.generateMoves(side, moves); i < n; i++) {
+          if (!board.isRepetition(moves[i])) {
+            moves[count++] = moves[i];
+          }
+        }
+        if (count == 0) {
+          break; // Only a setup without a movable piece; Board.move ends stuck games itself
+        }
+        MovePolicy policy = side == Side.A ? policyA : policyB;
+        MovementResult result = board.move(policy.choose(board, side, moves, count, random));
+        plies++;
+        if (result.gameOver) {
+          winner = result.winner;
+          break;
+        }
+        side = Side.getOpposite(side);
+      }
+
+      counts[0] += plies;
+      counts[winner == Side.A ? 1 : winner == Side.B ? 2 : 3]++;
+    }
+    return counts;
+  }
+
+  // Places the army on its startable squares in random order
+  static void randomSetup(Board board, Army army, SplittableRandom random) {
+    new SetupGenerator(army.side).setup(board, army, random);
+  }
+}
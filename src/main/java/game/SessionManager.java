@@ -0,0 +1,180 @@
+package game;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Registry of live games by id. Each session serialises its own commands on a {@link Mailbox}, so
+ * games never contend with each other and throughput grows with the cores of the executors behind
+ * them.
+ *
+ * <p>By default every mailbox drains on a shared virtual-thread executor. Passing a supplier such
+ * as {@code eventLoopGroup::next} instead pins each game to one event loop, so its commands run on
+ * the thread that also serves its connections.
+ *
+ * <p>With a {@link SessionStore}, games idle for longer than a threshold are hibernated into the
+ * store and woken by their next command, and ids of stored games resolve even after a restart.
+ */
+public final class SessionManager implements AutoCloseable {
+  private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong ids;
+  private final Supplier<? extends Executor> executors;
+  private final ExecutorService owned;
+  private final SessionStore store;
+  private final Duration idle;
+  private final ScheduledExecutorService sweeper;
+  private boolean closed;
+
+  public SessionManager() {
+    this(null, null, null);
+  }
+
+  /** @param executors picks the executor for each new session's mailbox */
+  public SessionManager(Supplier<? extends Executor> executors) {
+    this(executors, null, null);
+  }
+
+  /**
+   * @param executors picks the executor for each session's mailbox, or null for virtual threads
+   * @param store where idle games go, or null to keep every game on the heap
+   * @param idle how long a game may go without commands before it is hibernated
+   */
+  SessionManager(Supplier<? extends Executor> executors, SessionStore store, Duration idle) {
+    if (executors == null) {
+      ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor();
+      this.owned = virtual;
+      this.executors = () -> virtual;
+    } else {
+      this.owned = null;
+      this.executors = executors;
+    }
+    this.store = store;
+    this.idle = idle;
+    this.ids = new AtomicLong(store == null ? 0 : store.lastId());
+
+    if (store == null) {
+      sweeper = null;
+    } else {
+      sweeper =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> Thread.ofPlatform().name("session-sweeper").daemon().unstarted(r));
+      long period = Math.max(1000, idle.toMillis() / 4);
+      sweeper.scheduleWithFixedDelay(
+          () -> evictIdle(System.nanoTime()), period, period, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Keeps games in an Eclipse Store at the given directory, hibernating those idle too long. */
+  public static SessionManager persistent(Path directory, Duration idle) {
+    return new SessionManager(null, new EclipseSessionStore(directory), idle);
+  }
+
+  /** Starts a game with random setups for both sides. */
+  public GameSession create() {
+    Board board = new Board();
+    SplittableRandom random = new SplittableRandom();
+    new SetupGenerator(Side.A).setup(board, board.A, random);
+    new SetupGenerator(Side.B).setup(board, board.B, random);
+    return create(board);
+  }
+
+  // Starts a game from a set up board, which the session takes ownership of
+  GameSession create(Board board) {
+    GameSession session = new GameSession(ids.incrementAndGet(), board, executors.get(), store);
+    sessions.put(session.id(), session);
+    return session;
+  }
+
+  /** @return the session, or null if no game has that id */
+  public GameSession get(long id) {
+    while (true) {
+      GameSession session = sessions.get(id);
+      if (session == null && store != null) {
+        // Saved before a restart or dropped while idle; the state loads with the first command
+        session =
+            sessions.computeIfAbsent(
+                id,
+                key -> store.contains(key) ? GameSession.stored(key, executors.get(), store) : null);
+      }
+      if (session == null) {
+        return null;
+      }
+      session.touch();
+      if (!session.isRetired()) {
+        return session;
+      }
+    }
+  }
+
+  public GameSession remove(long id) {
+    return sessions.remove(id);
+  }
+
+  public int size() {
+    return sessions.size();
+  }
+
+  /**
+   * Hibernates every session idle past the threshold at the given System.nanoTime(). Once saved,
+   * sessions nobody listens to and finished games leave the map; a later lookup wakes them from the
+   * store in a new session.
+   *
+   * @return how many sessions were asked to hibernate
+   */
+  int evictIdle(long now) {
+    long cutoff = now - idle.toNanos();
+    int evicted = 0;
+    for (GameSession session : sessions.values()) {
+      if (session.lastActive() - cutoff >= 0) {
+        continue;
+      }
+      if (session.isAwake()) {
+        // Only after a successful save; a failed one keeps the session and its changes
+        session.hibernate().thenRun(() -> retire(session, cutoff));
+        evicted++;
+      } else {
+        retire(session, cutoff);
+      }
+    }
+    return evicted;
+  }
+
+  // Drops a hibernated session unless something used it meanwhile
+  private void retire(GameSession session, long cutoff) {
+    sessions.computeIfPresent(
+        session.id(), (id, current) -> current == session && session.retire(cutoff) ? null : current);
+  }
+
+  /**
+   * Saves every game and shuts the store. Safe to call from a shutdown hook and again afterwards;
+   * later calls wait for the first to finish.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+      // Save what changed, so nothing is lost on shutdown
+      for (GameSession session : sessions.values()) {
+        session.hibernate().join();
+      }
+      store.close();
+    }
+    sessions.clear();
+    if (owned != null) {
+      owned.close();
+    }
+  }
+}
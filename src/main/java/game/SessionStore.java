@@ -0,0 +1,24 @@
+package game;
+
+/**
+ * Where {@link SessionManager} puts games it evicts from the heap. Must be thread-safe; {@link
+ * #contains} and {@link #lastId} are called from I/O threads and must not wait for the disk. Saves
+ * and loads of one id never overlap, as its session serialises them.
+ */
+interface SessionStore extends AutoCloseable {
+  void save(long id, StoredGame game);
+
+  boolean contains(long id);
+
+  /** @return the saved game, or null if none has that id */
+  StoredGame load(long id);
+
+  // Called instead of save when a loaded game hibernates unchanged, so the store may unload it
+  default void release(long id) {}
+
+  // Highest id saved so far, so new games do not reuse ids after a restart
+  long lastId();
+
+  @Override
+  void close();
+}
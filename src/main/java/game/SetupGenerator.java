@@ -0,0 +1,92 @@
+package game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates legal setups for one side, either uniformly at random or weighted by how likely each
+ * rank is to stand on each square. Reuses its buffers, so use one generator per thread.
+ */
+final class SetupGenerator {
+  private final Side side;
+  private final int[] startable;
+  private final double[][] weights;
+
+  private final int[] pool;
+  private final int[] placement = new int[Army.SIZE];
+  private final double[] scratch;
+
+  // Uniformly random setups
+  SetupGenerator(Side side) {
+    this(side, null);
+  }
+
+  /**
+   * @param weights relative weight of each rank on each square, indexed by rank - FLAG then by
+   *     square; zero forbids the square for that rank. Null gives uniform setups.
+   */
+  SetupGenerator(Side side, double[][] weights) {
+    this.side = side;
+    this.weights = weights;
+
+    Bitboard mask = Board.startable(side);
+    startable = new int[mask.count()];
+    int n = 0;
+    for (int sq = mask.next(0); sq >= 0; sq = mask.next(sq + 1)) {
+      startable[n++] = sq;
+    }
+    pool = new int[startable.length];
+    scratch = new double[startable.length];
+  }
+
+  /**
+   * Writes a square for every piece of the army into out, indexed like {@code army.pieces}.
+   *
+   * @return false if the weights leave some piece without a square
+   */
+  boolean generate(Army army, SplittableRandom random, int[] out) {
+    int free = startable.length;
+    System.arraycopy(startable, 0, pool, 0, free);
+
+    // Flag and bombs come last in the army, so place from the back to serve them first
+    for (int i = army.pieces.size() - 1; i >= 0; i--) {
+      int pick;
+      if (weights == null) {
+        pick = random.nextInt(free);
+      } else {
+        pick = weightedPick(weights[army.pieces.get(i).rank - Piece.FLAG], pool, free, random);
+        if (pick < 0) {
+          return false;
+        }
+      }
+      out[i] = pool[pick];
+      pool[pick] = pool[--free];
+    }
+    return true;
+  }
+
+  // Generates a setup and places it on the board
+  boolean setup(Board board, Army army, SplittableRandom random) {
+    if (army.side != side) {
+      throw new IllegalArgumentException("Generator is for side " + side);
+    }
+    return generate(army, random, placement) && board.placeArmy(army, placement);
+  }
+
+  private int weightedPick(double[] bySquare, int[] pool, int free, SplittableRandom random) {
+    double total = 0;
+    for (int j = 0; j < free; j++) {
+      total += bySquare[pool[j]];
+      scratch[j] = total;
+    }
+    if (total <= 0) {
+      return -1;
+    }
+    double target = random.nextDouble(total);
+    for (int j = 0; j < free; j++) {
+      if (target < scratch[j]) {
+        return j;
+      }
+    }
+    return free - 1;
+  }
+}
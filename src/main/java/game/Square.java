@@ -7,7 +7,6 @@ public class Square {
   boolean passable = true;
   boolean startable = false;
   Side side = Side.NEITHER;
-  Piece piece;
 
   Square(int x, int y) {
     this.x = x;
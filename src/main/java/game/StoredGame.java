@@ -0,0 +1,70 @@
+package game;
+
+import io.netty.buffer.Unpooled;
+
+/**
+ * Persistent form of a hibernated {@link GameSession}. The board is kept as a {@link BoardCodec}
+ * snapshot rather than as its object graph, and the record as flat arrays, so a save only writes
+ * the arrays that changed since the last one. The snapshot holds no repetition history, so each
+ * side's {@link MoveHistory} is saved alongside it.
+ */
+final class StoredGame {
+  byte[] board;
+  int interval;
+  int[] plies;
+  byte[][] checkpoints;
+  Side turn;
+  boolean over;
+  Side winner;
+  String[] tokens;
+
+  // Each side's MoveHistory, indexed by Side ordinal
+  int[][] historyMoves;
+  long[][] historyPositions;
+
+  StoredGame(
+      Board board, GameRecord record, Side turn, boolean over, Side winner, String[] tokens) {
+    this.board = GameRecord.snapshot(board);
+    this.interval = record.interval();
+    this.plies = record.plies();
+    this.checkpoints = record.checkpoints();
+    this.turn = turn;
+    this.over = over;
+    this.winner = winner;
+    this.tokens = tokens;
+    this.historyMoves = new int[][] {board.history(Side.A).moves(), board.history(Side.B).moves()};
+    this.historyPositions =
+        new long[][] {board.history(Side.A).positions(), board.history(Side.B).positions()};
+  }
+
+  // Takes over the state of a newer save of the same game
+  void update(StoredGame newer) {
+    board = newer.board;
+    interval = newer.interval;
+    plies = newer.plies;
+    checkpoints = newer.checkpoints;
+    turn = newer.turn;
+    over = newer.over;
+    winner = newer.winner;
+    tokens = newer.tokens;
+    historyMoves = newer.historyMoves;
+    historyPositions = newer.historyPositions;
+  }
+
+  Board board() {
+    Board decoded = BoardCodec.decode(Unpooled.wrappedBuffer(board));
+    // Games saved before histories were kept restart them empty
+    if (historyMoves != null) {
+      for (Side side : new Side[] {Side.A, Side.B}) {
+        decoded
+            .history(side)
+            .restore(historyMoves[side.ordinal()], historyPositions[side.ordinal()]);
+      }
+    }
+    return decoded;
+  }
+
+  GameRecord record() {
+    return new GameRecord(interval, plies, checkpoints);
+  }
+}
@@ -0,0 +1,89 @@
+package game;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size hash table of search results keyed by {@link Board#hash()}, safe to share between
+ * search threads without locks.
+ *
+ * <p>Each slot is two longs: the key XOR the data, and the data. A reader only accepts a slot
+ * whose two words XOR back to its key, so a slot torn by concurrent writers reads as a miss
+ * instead of returning another position's result.
+ */
+final class TranspositionTable {
+  static final int EXACT = 0;
+  static final int LOWER = 1;
+  static final int UPPER = 2;
+
+  // Returned by probe when nothing is stored for the hash
+  static final long MISS = 0;
+
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  // Set on every stored entry so that data is never MISS
+  private static final long VALID = 1L << 63;
+
+  private final long[] slots;
+  private final int mask;
+
+  /**
+   * @param capacity number of entries, rounded up to a power of two
+   */
+  TranspositionTable(int capacity) {
+    int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+    slots = new long[size * 2];
+    mask = size - 1;
+  }
+
+  /**
+   * Stores a search result, replacing the slot's entry unless it holds the same position searched
+   * to a greater depth.
+   */
+  void store(long hash, int move, int score, int depth, int bound) {
+    int i = ((int) hash & mask) << 1;
+    long data =
+        VALID
+            | (move & 0xFFFFL)
+            | (score & 0xFFFFL) << 16
+            | (long) (depth & 0xFF) << 32
+            | (long) (bound & 0x3) << 40;
+
+    long existing = (long) SLOTS.getOpaque(slots, i + 1);
+    if ((((long) SLOTS.getOpaque(slots, i)) ^ existing) == hash && depth(existing) > depth) {
+      return;
+    }
+    SLOTS.setOpaque(slots, i, hash ^ data);
+    SLOTS.setOpaque(slots, i + 1, data);
+  }
+
+  // Returns the packed entry for the hash, or MISS
+  long probe(long hash) {
+    int i = ((int) hash & mask) << 1;
+    long data = (long) SLOTS.getOpaque(slots, i + 1);
+    long check = (long) SLOTS.getOpaque(slots, i);
+    return (check ^ data) == hash && data != MISS ? data : MISS;
+  }
+
+  void clear() {
+    for (int i = 0; i < slots.length; i++) {
+      SLOTS.setOpaque(slots, i, 0L);
+    }
+  }
+
+  static int move(long entry) {
+    return (int) (entry & 0xFFFF);
+  }
+
+  static int score(long entry) {
+    return (short) (entry >>> 16);
+  }
+
+  static int depth(long entry) {
+    return (int) (entry >>> 32) & 0xFF;
+  }
+
+  static int bound(long entry) {
+    return (int) (entry >>> 40) & 0x3;
+  }
+}
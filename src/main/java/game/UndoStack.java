@@ -0,0 +1,31 @@
+package game;
+
+import java.util.Arrays;
+
+/** Growable stack of packed undo records for {@link Board#makeMove}. */
+final class UndoStack {
+  private long[] entries = new long[64];
+  private int size;
+
+  void push(long entry) {
+    if (size == entries.length) {
+      entries = Arrays.copyOf(entries, size * 2);
+    }
+    entries[size++] = entry;
+  }
+
+  long pop() {
+    if (size == 0) {
+      throw new IllegalStateException("Nothing to undo");
+    }
+    return entries[--size];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
@@ -0,0 +1,156 @@
+package game;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * What each viewer may see of a game: its own pieces plus the enemy pieces that have been revealed.
+ * Viewers are indexed by {@link Side#ordinal}, with {@link Side#NEITHER} standing for spectators,
+ * who only see revealed pieces of either side.
+ *
+ * <p>Every viewer keeps the set of piece ids whose rank it knows, so a move turns into a delta of a
+ * few bytes per viewer instead of a filtered copy of the board. A {@link #view} frame carries the
+ * whole visible state for a viewer that joins late. Frames start with their type:
+ *
+ * <pre>
+ * VIEW:  type, then per piece id: square (or OFF_BOARD, DEAD), rank (or UNKNOWN)
+ * DELTA: type, flags, piece, from, to, [defender], [piece rank], [defender rank], [winner]
+ * </pre>
+ *
+ * <p>All fields are single bytes; ranks are sent as {@code rank - FLAG}.
+ */
+final class ViewProjection {
+  static final int VIEWERS = Side.values().length;
+
+  static final int VIEW = 1;
+  static final int DELTA = 2;
+
+  static final int VIEW_SIZE = 1 + 4 * Army.SIZE;
+  static final int MAX_DELTA_SIZE = 9;
+
+  // Rank byte for a piece the viewer does not know
+  static final int UNKNOWN = 0xFF;
+
+  // Delta flags, each adding the field named in the class comment when set
+  static final int COMBAT = 0x01;
+  static final int PIECE_RANK = 0x02;
+  static final int DEFENDER_RANK = 0x04;
+  static final int PIECE_REMOVED = 0x08;
+  static final int DEFENDER_REMOVED = 0x10;
+  static final int GAME_OVER = 0x20;
+
+  private final Board board;
+
+  // Piece ids whose rank each viewer knows, two words per viewer
+  private final long[] known = new long[2 * VIEWERS];
+
+  ViewProjection(Board board) {
+    this.board = board;
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      Piece piece = board.piece(id);
+      for (int v = 0; v < VIEWERS; v++) {
+        if (piece.revealed || piece.side.ordinal() == v) {
+          learn(v, id);
+        }
+      }
+    }
+  }
+
+  boolean knows(Side viewer, Piece piece) {
+    int v = viewer.ordinal();
+    return (known[2 * v + piece.id / 64] & (1L << piece.id)) != 0;
+  }
+
+  /** Writes the whole state the viewer may see, VIEW_SIZE bytes. */
+  void view(Side viewer, ByteBuf out) {
+    out.ensureWritable(VIEW_SIZE);
+    out.writeByte(VIEW);
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      Piece piece = board.piece(id);
+      int sq;
+      if (piece.position != null) {
+        sq = Bitboard.index(piece.position.x, piece.position.y);
+      } else {
+        sq = piece.alive ? BoardCodec.OFF_BOARD : BoardCodec.DEAD;
+      }
+      out.writeByte(sq);
+      out.writeByte(knows(viewer, piece) ? piece.rank - Piece.FLAG : UNKNOWN);
+    }
+  }
+
+  /**
+   * Writes the delta of a move played on the board to every viewer with a buffer, then records
+   * what the move revealed. Must be called once per played move, in order.
+   *
+   * @param out buffers indexed by viewer ordinal; null entries are skipped
+   */
+  void update(MovementResult result, ByteBuf[] out) {
+    if (!result.moved) {
+      return;
+    }
+
+    Piece piece = result.piece;
+    Piece defender = result.defender;
+    for (int v = 0; v < VIEWERS; v++) {
+      if (out[v] != null) {
+        delta(v, result, out[v]);
+      }
+    }
+
+    // Combat reveals both pieces to everyone
+    if (defender != null) {
+      for (int v = 0; v < VIEWERS; v++) {
+        learn(v, piece.id);
+        learn(v, defender.id);
+      }
+    }
+  }
+
+  private void delta(int v, MovementResult result, ByteBuf out) {
+    Piece piece = result.piece;
+    Piece defender = result.defender;
+    Side viewer = Side.values()[v];
+
+    int flags = 0;
+    if (defender != null) {
+      flags |= COMBAT;
+      if (!knows(viewer, piece)) {
+        flags |= PIECE_RANK;
+      }
+      if (!knows(viewer, defender)) {
+        flags |= DEFENDER_RANK;
+      }
+      if (!piece.alive) {
+        flags |= PIECE_REMOVED;
+      }
+      if (!defender.alive) {
+        flags |= DEFENDER_REMOVED;
+      }
+    }
+    if (result.gameOver) {
+      flags |= GAME_OVER;
+    }
+
+    out.ensureWritable(MAX_DELTA_SIZE);
+    out.writeByte(DELTA);
+    out.writeByte(flags);
+    out.writeByte(piece.id);
+    out.writeByte(result.from);
+    out.writeByte(result.to);
+    if ((flags & COMBAT) != 0) {
+      out.writeByte(defender.id);
+    }
+    if ((flags & PIECE_RANK) != 0) {
+      out.writeByte(piece.rank - Piece.FLAG);
+    }
+    if ((flags & DEFENDER_RANK) != 0) {
+      out.writeByte(defender.rank - Piece.FLAG);
+    }
+    if ((flags & GAME_OVER) != 0) {
+      out.writeByte(result.winner.ordinal());
+    }
+  }
+
+  private void learn(int v, int id) {
+    known[2 * v + id / 64] |= 1L << id;
+  }
+}
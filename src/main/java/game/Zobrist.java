@@ -0,0 +1,38 @@
+package game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for incremental position hashing. A position hashes to the XOR of the key of every
+ * piece on the board, picked by its side, rank and square, plus a second key per revealed piece.
+ */
+final class Zobrist {
+  private static final int SIDES = 2;
+  private static final long[] PIECES = new long[SIDES * Piece.RANKS * Bitboard.SQUARES];
+  private static final long[] REVEALED = new long[SIDES * Piece.RANKS * Bitboard.SQUARES];
+
+  static {
+    // Fixed seed so hashes are stable across runs
+    SplittableRandom random = new SplittableRandom(0x5742A7A3EL);
+    for (int i = 0; i < PIECES.length; i++) {
+      PIECES[i] = random.nextLong();
+      REVEALED[i] = random.nextLong();
+    }
+  }
+
+  private Zobrist() {}
+
+  static long key(Piece piece, int sq) {
+    int i = index(piece, sq);
+    return piece.revealed ? PIECES[i] ^ REVEALED[i] : PIECES[i];
+  }
+
+  static long revealedKey(Piece piece, int sq) {
+    return REVEALED[index(piece, sq)];
+  }
+
+  private static int index(Piece piece, int sq) {
+    int side = piece.side == Side.B ? 1 : 0;
+    return (side * Piece.RANKS + piece.rank - Piece.FLAG) * Bitboard.SQUARES + sq;
+  }
+}
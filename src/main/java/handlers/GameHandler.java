@@ -0,0 +1,51 @@
+package handlers;
+
+import game.GameSession;
+import game.SessionManager;
+import game.Side;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import server.GameSocketHandler;
+import server.JsonResponse;
+import server.RouteMatch;
+import server.RouteResponse;
+import server.TextResponse;
+
+public class GameHandler {
+
+  public static final String URL = "/games";
+  public static final String GAME_URL = URL + "/{id}";
+
+  private final SessionManager sessions;
+
+  public GameHandler(SessionManager sessions) {
+    this.sessions = sessions;
+  }
+
+  // Body of the response to creating a game
+  public record Created(long id, String tokenA, String tokenB) {}
+
+  // Starts a game and returns its id and the token of each side; the creator keeps one token and
+  // passes the other to the opponent, and each player connects to the game's WebSocket with theirs
+  public RouteResponse create(
+      ChannelHandlerContext ctx, FullHttpRequest request, RouteMatch match) {
+    GameSession session = sessions.create();
+    Created created = new Created(session.id(), session.token(Side.A), session.token(Side.B));
+    return new JsonResponse(created, HttpResponseStatus.CREATED);
+  }
+
+  // Returns the WebSocket path of an existing game
+  public RouteResponse get(ChannelHandlerContext ctx, FullHttpRequest request, RouteMatch match) {
+    GameSession session;
+    try {
+      session = sessions.get(Long.parseLong(match.param("id")));
+    } catch (NumberFormatException e) {
+      session = null;
+    }
+    if (session == null) {
+      return new TextResponse("No such game", HttpResponseStatus.NOT_FOUND);
+    }
+    return new TextResponse(GameSocketHandler.PATH + "/" + session.id(), HttpResponseStatus.OK);
+  }
+}
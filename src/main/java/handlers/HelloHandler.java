@@ -6,13 +6,15 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.FullHttpRequest;
 import server.HtmlResponse;
+import server.RouteMatch;
 import server.RouteResponse;
 
 public class HelloHandler {
 
   public static final String URL = "/hello";
 
-  public static RouteResponse get(ChannelHandlerContext ctx, FullHttpRequest request) {
+  public static RouteResponse get(
+      ChannelHandlerContext ctx, FullHttpRequest request, RouteMatch match) {
     return new HtmlResponse(div(h1("Hello, World!")), HttpResponseStatus.OK);
   }
 }
@@ -0,0 +1,278 @@
+package server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Writes a response body into pooled direct buffers, encoding text as UTF-8. A body that fits in
+ * one chunk goes out as a single response with a Content-Length; a longer one is sent chunked,
+ * each chunk as it fills, so no buffer grows past the chunk size. Large writes and appends are
+ * split into slices that fit the current chunk for the same reason.
+ *
+ * <p>Chunks go through the pipeline's {@link ChunkedWriteHandler} as one {@link ChunkedInput}, so
+ * they reach the channel only while it is writable instead of piling up in its outbound buffer.
+ *
+ * <p>Used on the channel's event loop only.
+ */
+public final class BodyOutput extends OutputStream implements Appendable {
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final ChannelHandlerContext ctx;
+  private final HttpResponseStatus status;
+  private final String contentType;
+  private final int chunkSize;
+
+  private ByteBuf buf;
+  private boolean streaming;
+  // The pipeline's ChunkedWriteHandler and the input it takes chunks from; null without one
+  private ChunkedWriteHandler writer;
+  private Chunks chunks;
+  // High surrogate of a pair split across appends
+  private char high;
+
+  /** @param chunkSize bytes buffered before streaming; Integer.MAX_VALUE never streams */
+  BodyOutput(
+      ChannelHandlerContext ctx, HttpResponseStatus status, String contentType, int chunkSize) {
+    this.ctx = ctx;
+    this.status = status;
+    this.contentType = contentType;
+    this.chunkSize = chunkSize;
+    this.buf = ctx.alloc().directBuffer(Math.min(chunkSize, 1024));
+  }
+
+  @Override
+  public void write(int b) {
+    buf.writeByte(b);
+    filled();
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      int n = Math.min(length, chunkSize - buf.readableBytes());
+      buf.writeBytes(bytes, offset, n);
+      offset += n;
+      length -= n;
+      filled();
+    }
+  }
+
+  // Left open for the router to finish; writers such as Jackson close their target when done
+  @Override
+  public void close() {}
+
+  @Override
+  public BodyOutput append(CharSequence s) {
+    return append(s, 0, s.length());
+  }
+
+  @Override
+  public BodyOutput append(CharSequence s, int start, int end) {
+    // Until the pending high surrogate is settled, which takes two chars if the first is another
+    while (start < end && high != 0) {
+      append(s.charAt(start++));
+    }
+    if (start < end && Character.isHighSurrogate(s.charAt(end - 1))) {
+      high = s.charAt(--end);
+    }
+    while (start < end) {
+      // A char takes at most three bytes, or four with the other half of its surrogate pair
+      reserve(4);
+      int slice = start + Math.min(end - start, (chunkSize - buf.readableBytes()) / 3);
+      if (slice < end
+          && Character.isHighSurrogate(s.charAt(slice - 1))
+          && Character.isLowSurrogate(s.charAt(slice))) {
+        slice = slice - 1 > start ? slice - 1 : slice + 1;
+      }
+      ByteBufUtil.writeUtf8(buf, s, start, slice);
+      start = slice;
+      filled();
+    }
+    return this;
+  }
+
+  @Override
+  public BodyOutput append(char c) {
+    reserve(4);
+    if (high != 0) {
+      char h = high;
+      high = 0;
+      if (Character.isLowSurrogate(c)) {
+        writeUtf8(Character.toCodePoint(h, c));
+        filled();
+        return this;
+      }
+      buf.writeByte('?');
+    }
+    if (Character.isHighSurrogate(c)) {
+      high = c;
+    } else {
+      writeUtf8(Character.isLowSurrogate(c) ? '?' : c);
+      filled();
+    }
+    return this;
+  }
+
+  private void writeUtf8(int codePoint) {
+    if (codePoint < 0x80) {
+      buf.writeByte(codePoint);
+    } else if (codePoint < 0x800) {
+      buf.writeByte(0xC0 | codePoint >> 6);
+      buf.writeByte(0x80 | codePoint & 0x3F);
+    } else if (codePoint < 0x10000) {
+      buf.writeByte(0xE0 | codePoint >> 12);
+      buf.writeByte(0x80 | codePoint >> 6 & 0x3F);
+      buf.writeByte(0x80 | codePoint & 0x3F);
+    } else {
+      buf.writeByte(0xF0 | codePoint >> 18);
+      buf.writeByte(0x80 | codePoint >> 12 & 0x3F);
+      buf.writeByte(0x80 | codePoint >> 6 & 0x3F);
+      buf.writeByte(0x80 | codePoint & 0x3F);
+    }
+  }
+
+  // Sends the chunk early if fewer bytes than needed are left in it
+  private void reserve(int bytes) {
+    if (buf.readableBytes() > 0 && chunkSize - buf.readableBytes() < bytes) {
+      sendChunk();
+    }
+  }
+
+  private void filled() {
+    if (buf.readableBytes() >= chunkSize) {
+      sendChunk();
+    }
+  }
+
+  private void sendChunk() {
+    if (!streaming) {
+      streaming = true;
+      HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+      response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+      ctx.write(response);
+      writer = ctx.pipeline().get(ChunkedWriteHandler.class);
+      if (writer != null) {
+        chunks = new Chunks();
+        ctx.writeAndFlush(chunks);
+      }
+    }
+    if (chunks != null) {
+      chunks.queue.add(buf);
+      writer.resumeTransfer();
+    } else {
+      ctx.writeAndFlush(new DefaultHttpContent(buf));
+    }
+    buf = ctx.alloc().directBuffer(chunkSize);
+  }
+
+  /** Sends what is left of the body, ending the response. */
+  void finish() {
+    if (high != 0) {
+      high = 0;
+      buf.writeByte('?');
+    }
+
+    ByteBuf content = buf;
+    buf = null;
+    // HttpServerKeepAliveHandler closes the connection if the request asked for it
+    if (chunks != null) {
+      chunks.queue.add(content);
+      chunks.ended = true;
+      writer.resumeTransfer();
+      return;
+    }
+    if (streaming) {
+      ctx.writeAndFlush(new DefaultLastHttpContent(content));
+      return;
+    }
+    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content);
+    response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+    ctx.writeAndFlush(response);
+  }
+
+  /**
+   * Drops the body after its writer failed.
+   *
+   * @return true if nothing was sent yet, so another response can still answer the request
+   */
+  boolean discard() {
+    if (buf != null) {
+      buf.release();
+      buf = null;
+    }
+    return !streaming;
+  }
+
+  /**
+   * A streamed body's chunks, queued until the ChunkedWriteHandler takes them. It asks for more
+   * only while the channel is writable and waits for {@link ChunkedWriteHandler#resumeTransfer}
+   * when the queue runs dry before the body ended.
+   */
+  private static final class Chunks implements ChunkedInput<HttpContent> {
+    final ArrayDeque<ByteBuf> queue = new ArrayDeque<>();
+    boolean ended;
+    private boolean done;
+    private long progress;
+
+    @Override
+    public boolean isEndOfInput() {
+      return done;
+    }
+
+    @Override
+    public HttpContent readChunk(ChannelHandlerContext ctx) {
+      return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public HttpContent readChunk(ByteBufAllocator allocator) {
+      ByteBuf next = queue.poll();
+      if (next == null) {
+        return null;
+      }
+      progress += next.readableBytes();
+      if (ended && queue.isEmpty()) {
+        done = true;
+        return new DefaultLastHttpContent(next);
+      }
+      return new DefaultHttpContent(next);
+    }
+
+    @Override
+    public void close() {
+      ByteBuf next;
+      while ((next = queue.poll()) != null) {
+        next.release();
+      }
+    }
+
+    @Override
+    public long length() {
+      return -1;
+    }
+
+    @Override
+    public long progress() {
+      return progress;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package server;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+
+/**
+ * Limits how long a kept-alive connection lives. Closes it once an {@link
+ * io.netty.handler.timeout.IdleStateHandler} before this handler reports it idle, and marks the
+ * response to the last request allowed on one connection with {@code Connection: close}, which
+ * {@link io.netty.handler.codec.http.HttpServerKeepAliveHandler} then honours. A connection with a
+ * request still being handled, such as one on a blocking route, is not idle. A request counts as
+ * handled once the last content of its response is written, so a chunked body keeps it pending.
+ */
+public class ConnectionPolicyHandler extends ChannelDuplexHandler {
+  private final int maxRequests;
+  private int responses;
+  private int pending;
+
+  // Whether a final response started and its last content is still to come
+  private boolean answering;
+
+  public ConnectionPolicyHandler(int maxRequests) {
+    this.maxRequests = maxRequests;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof HttpRequest) {
+      pending++;
+    }
+    super.channelRead(ctx, msg);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    // Interim responses such as 100 Continue do not answer a request
+    if (msg instanceof HttpResponse response
+        && response.status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+      answering = true;
+      if (++responses >= maxRequests) {
+        HttpUtil.setKeepAlive(response, false);
+      }
+    }
+    // A full response is its own last content
+    if (answering && msg instanceof LastHttpContent) {
+      answering = false;
+      pending--;
+    }
+    super.write(ctx, msg, promise);
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+    if (evt instanceof IdleStateEvent) {
+      if (pending <= 0) {
+        ctx.close();
+      }
+      return;
+    }
+    super.userEventTriggered(ctx, evt);
+  }
+}
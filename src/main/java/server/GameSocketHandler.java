@@ -0,0 +1,177 @@
+package server;
+
+import game.GameSession;
+import game.SessionManager;
+import game.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import java.util.List;
+
+/**
+ * One player's or spectator's socket for a game, opened at {@code
+ * /ws/games/{id}?side=A|B&token=...} with the side's token from creating the game. Without a side
+ * the socket spectates.
+ *
+ * <p>Clients send two-byte binary frames, the origin and target square of a move. The server sends
+ * the frames of the game's {@code ViewProjection}: the visible state once bound, then a delta per
+ * move, plus a one-byte {@link #REJECTED} frame for a move the game refused and a one-byte {@link
+ * #FAILED} frame for a move the server failed to process.
+ */
+public class GameSocketHandler extends SimpleChannelInboundHandler<BinaryWebSocketFrame> {
+  // Netty matches this prefix only when a '/' or '?' follows it
+  public static final String PATH = "/ws/games";
+
+  public static final int REJECTED = 3;
+  public static final int FAILED = 4;
+
+  private final SessionManager sessions;
+  private final Spectators spectators;
+  private GameSession session;
+  private Side side;
+  private GameSession.Listener listener;
+
+  public GameSocketHandler(SessionManager sessions, Spectators spectators) {
+    this.sessions = sessions;
+    this.spectators = spectators;
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+    if (!(evt instanceof WebSocketServerProtocolHandler.HandshakeComplete handshake)) {
+      super.userEventTriggered(ctx, evt);
+      return;
+    }
+
+    // Players may think for long stretches; the socket stays open until either side closes it
+    ctx.pipeline().remove(Server.IDLE);
+
+    QueryStringDecoder uri = new QueryStringDecoder(handshake.requestUri());
+    session = parseSession(uri.path());
+    side = parseSide(uri.parameters().get("side"));
+    if (session == null || side == null) {
+      ctx.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.POLICY_VIOLATION))
+          .addListener(ChannelFutureListener.CLOSE);
+      return;
+    }
+
+    if (side == Side.NEITHER) {
+      spectators.join(session, ctx.channel());
+      return;
+    }
+
+    // Not a player until the token checks out, so moves sent meanwhile are rejected
+    Side claimed = side;
+    side = null;
+    session
+        .admits(claimed, first(uri.parameters().get("token")))
+        .whenComplete(
+            (admitted, error) -> {
+              if (error != null) {
+                ctx.fireExceptionCaught(error);
+              }
+              ctx.executor().execute(() -> bind(ctx, claimed, Boolean.TRUE.equals(admitted)));
+            });
+  }
+
+  private void bind(ChannelHandlerContext ctx, Side claimed, boolean admitted) {
+    Channel channel = ctx.channel();
+    if (!admitted) {
+      channel
+          .writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.POLICY_VIOLATION))
+          .addListener(ChannelFutureListener.CLOSE);
+      return;
+    }
+    if (!channel.isActive()) {
+      return;
+    }
+    side = claimed;
+    listener = frame -> channel.writeAndFlush(new BinaryWebSocketFrame(frame));
+    session.subscribe(side, listener);
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    // A spectator skipped while its buffer was full has a stale view to replace
+    if (side == Side.NEITHER && session != null && ctx.channel().isWritable()) {
+      spectators.rejoin(session, ctx.channel());
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext ctx, BinaryWebSocketFrame frame) {
+    if (session == null
+        || side == null
+        || side == Side.NEITHER
+        || frame.content().readableBytes() != 2) {
+      send(ctx, REJECTED);
+      return;
+    }
+
+    ByteBuf content = frame.content();
+    int from = content.getUnsignedByte(content.readerIndex());
+    int to = content.getUnsignedByte(content.readerIndex() + 1);
+    session
+        .move(side, from, to)
+        .whenComplete(
+            (result, error) -> {
+              if (error != null) {
+                // Reported to the pipeline, whose tail logs it; the client learns only the outcome
+                send(ctx, FAILED);
+                ctx.fireExceptionCaught(error);
+              } else if (!result.moved()) {
+                send(ctx, REJECTED);
+              }
+            });
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    if (listener != null) {
+      session.unsubscribe(side, listener);
+    } else if (side == Side.NEITHER && session != null) {
+      spectators.leave(session, ctx.channel());
+    }
+    super.channelInactive(ctx);
+  }
+
+  private static void send(ChannelHandlerContext ctx, int type) {
+    ctx.writeAndFlush(new BinaryWebSocketFrame(ctx.alloc().buffer(1).writeByte(type)));
+  }
+
+  private GameSession parseSession(String path) {
+    if (!path.startsWith(PATH + '/')) {
+      return null;
+    }
+    try {
+      return sessions.get(Long.parseLong(path.substring(PATH.length() + 1)));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static String first(List<String> values) {
+    return values == null || values.isEmpty() ? null : values.getFirst();
+  }
+
+  // Side named by the query, NEITHER for spectators, or null if the value is not a player side
+  private static Side parseSide(List<String> values) {
+    String value = first(values);
+    if (value == null) {
+      return Side.NEITHER;
+    }
+    return switch (value) {
+      case "A" -> Side.A;
+      case "B" -> Side.B;
+      default -> null;
+    };
+  }
+}
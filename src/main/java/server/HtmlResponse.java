@@ -1,10 +1,12 @@
 package server;
 
 import io.netty.handler.codec.http.HttpResponseStatus;
+import j2html.rendering.FlatHtml;
 import j2html.tags.DomContent;
 
 public class HtmlResponse extends RouteResponse {
+  // Rendered as the response is sent, straight into its buffer
   public HtmlResponse(DomContent body, HttpResponseStatus status) {
-    super(body.render(), "text/html", status);
+    super(out -> body.render(FlatHtml.into(out)), "text/html; charset=UTF-8", status);
   }
 }
@@ -0,0 +1,13 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class JsonResponse extends RouteResponse {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  // Serialized as the response is sent, straight into its buffer
+  public JsonResponse(Object value, HttpResponseStatus status) {
+    super(out -> MAPPER.writeValue(out, value), "application/json", status);
+  }
+}
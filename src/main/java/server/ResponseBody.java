@@ -0,0 +1,20 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * Content of a route's response, written straight into the channel's pooled buffers when the
+ * response is sent rather than held as a String.
+ */
+@FunctionalInterface
+public interface ResponseBody {
+  void writeTo(BodyOutput out) throws IOException;
+
+  static ResponseBody text(CharSequence text) {
+    return out -> out.append(text);
+  }
+
+  static ResponseBody bytes(byte[] bytes) {
+    return out -> out.write(bytes);
+  }
+}
@@ -1,3 +1,14 @@
 package server;
 
-public record RouteDef(HandlerType method, String path, RouteHandle handler) {}
+/**
+ * A route. A blocking route's handler may wait, on JDBC for instance, and runs off the event loop.
+ */
+public record RouteDef(HandlerType method, String path, RouteHandle handler, boolean blocking) {
+  public RouteDef(HandlerType method, String path, RouteHandle handler) {
+    this(method, path, handler, false);
+  }
+
+  public static RouteDef blocking(HandlerType method, String path, RouteHandle handler) {
+    return new RouteDef(method, path, handler, true);
+  }
+}
@@ -1,3 +0,0 @@
-package server;
-
-public record RouteEntry(HandlerType method, String path, RouteHandle handler) {}
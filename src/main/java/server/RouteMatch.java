@@ -0,0 +1,62 @@
+package server;
+
+/**
+ * Result of matching a request against the routes: the handler and the path parameters. Holds
+ * parameters as bounds into the request URI and only creates their strings when asked, so one
+ * instance per connection serves every request without allocating.
+ */
+public final class RouteMatch {
+  static final int MAX_PARAMS = 16;
+
+  private static final String[] NO_NAMES = new String[0];
+
+  private String uri;
+  private RouteHandle handler;
+  private boolean blocking;
+  private String[] names = NO_NAMES;
+  private final int[] bounds = new int[2 * MAX_PARAMS];
+
+  void reset(String uri) {
+    this.uri = uri;
+    this.handler = null;
+    this.blocking = false;
+    this.names = NO_NAMES;
+  }
+
+  void bind(int param, int start, int end) {
+    bounds[2 * param] = start;
+    bounds[2 * param + 1] = end;
+  }
+
+  void set(RouteHandle handler, String[] names, boolean blocking) {
+    this.handler = handler;
+    this.names = names;
+    this.blocking = blocking;
+  }
+
+  RouteHandle handler() {
+    return handler;
+  }
+
+  boolean blocking() {
+    return blocking;
+  }
+
+  public int paramCount() {
+    return names.length;
+  }
+
+  public String param(int i) {
+    return uri.substring(bounds[2 * i], bounds[2 * i + 1]);
+  }
+
+  /** @return the value of the named parameter, or null if the route has none by that name */
+  public String param(String name) {
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(name)) {
+        return param(i);
+      }
+    }
+    return null;
+  }
+}
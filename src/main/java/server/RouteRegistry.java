@@ -1,21 +1,17 @@
 package server;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class RouteRegistry {
-  private static final List<RouteEntry> routes = new ArrayList<>();
+  private static final RouteTree routes = new RouteTree();
 
   public static void addRoute(RouteDef routeDef) {
-    routes.add(new RouteEntry(routeDef.method(), routeDef.path(), routeDef.handler()));
+    routes.add(routeDef.method(), routeDef.path(), routeDef.handler(), routeDef.blocking());
   }
 
-  public static RouteHandle match(HandlerType method, String path) {
-    for (RouteEntry entry : routes) {
-      if (entry.method() == method && entry.path().equals(path)) {
-        return entry.handler();
-      }
-    }
-    return null;
+  /**
+   * Matches the path in the first {@code end} characters of the URI, writing the handler and
+   * parameters into match.
+   */
+  public static boolean match(HandlerType method, String uri, int end, RouteMatch match) {
+    return routes.match(method, uri, end, match);
   }
 }
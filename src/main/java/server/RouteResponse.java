@@ -3,17 +3,21 @@ package server;
 import io.netty.handler.codec.http.HttpResponseStatus;
 
 public class RouteResponse {
-  private final String body;
+  private final ResponseBody body;
   private final String contentType;
   private final HttpResponseStatus status;
 
-  public RouteResponse(String body, String contentType, HttpResponseStatus status) {
+  public RouteResponse(ResponseBody body, String contentType, HttpResponseStatus status) {
     this.body = body;
     this.contentType = contentType;
     this.status = status;
   }
 
-  public String body() {
+  public RouteResponse(String body, String contentType, HttpResponseStatus status) {
+    this(ResponseBody.text(body), contentType, status);
+  }
+
+  public ResponseBody body() {
     return body;
   }
 
@@ -0,0 +1,148 @@
+package server;
+
+import java.util.Arrays;
+
+/**
+ * Routes by path segment. A segment of a registered path is either static, a {@code {name}}
+ * parameter matching one non-empty segment, or, as the last segment, a {@code *} or {@code *name}
+ * wildcard matching the rest of the path. Static segments win over parameters and parameters over
+ * wildcards, backtracking when a more specific branch dead-ends.
+ *
+ * <p>Matching compares segments in place in the request URI and writes parameter bounds into a
+ * {@link RouteMatch} the caller reuses, so it does not allocate.
+ */
+final class RouteTree {
+  private static final int METHODS = HandlerType.values().length;
+
+  private static final class Node {
+    // Segment text for static children; null for parameter and wildcard nodes
+    final String label;
+    Node[] statics = new Node[0];
+    Node param;
+    Node wildcard;
+
+    // Handler, parameter names and blocking flag per method, for paths ending here
+    final RouteHandle[] handlers = new RouteHandle[METHODS];
+    final String[][] names = new String[METHODS][];
+    final boolean[] blocking = new boolean[METHODS];
+
+    Node(String label) {
+      this.label = label;
+    }
+
+    Node child(String segment) {
+      for (Node child : statics) {
+        if (child.label.equals(segment)) {
+          return child;
+        }
+      }
+      Node child = new Node(segment);
+      statics = Arrays.copyOf(statics, statics.length + 1);
+      statics[statics.length - 1] = child;
+      return child;
+    }
+  }
+
+  private final Node root = new Node(null);
+
+  void add(HandlerType method, String path, RouteHandle handler) {
+    add(method, path, handler, false);
+  }
+
+  void add(HandlerType method, String path, RouteHandle handler, boolean blocking) {
+    if (!path.startsWith("/")) {
+      throw new IllegalArgumentException("Route must start with '/': " + path);
+    }
+
+    String[] segments = path.length() == 1 ? new String[0] : path.substring(1).split("/", -1);
+    String[] names = new String[RouteMatch.MAX_PARAMS];
+    int params = 0;
+    Node node = root;
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      boolean isParam = segment.startsWith("{") && segment.endsWith("}");
+      boolean isWildcard = segment.startsWith("*");
+      if (isParam || isWildcard) {
+        if (params == RouteMatch.MAX_PARAMS) {
+          throw new IllegalArgumentException("Too many parameters in route " + path);
+        }
+        if (isWildcard && i != segments.length - 1) {
+          throw new IllegalArgumentException("Wildcard must be the last segment: " + path);
+        }
+        names[params++] =
+            isParam ? segment.substring(1, segment.length() - 1) : segment.substring(1);
+        if (isParam) {
+          node = node.param == null ? (node.param = new Node(null)) : node.param;
+        } else {
+          node = node.wildcard == null ? (node.wildcard = new Node(null)) : node.wildcard;
+        }
+      } else {
+        node = node.child(segment);
+      }
+    }
+
+    if (node.handlers[method.ordinal()] != null) {
+      throw new IllegalArgumentException("Duplicate route " + method + " " + path);
+    }
+    node.handlers[method.ordinal()] = handler;
+    node.names[method.ordinal()] = Arrays.copyOf(names, params);
+    node.blocking[method.ordinal()] = blocking;
+  }
+
+  /**
+   * Matches the path in {@code uri.substring(0, end)}, such as a request URI up to its query.
+   *
+   * @return true if a route matched, its handler and parameters then being in out
+   */
+  boolean match(HandlerType method, String uri, int end, RouteMatch out) {
+    out.reset(uri);
+    if (end == 0 || uri.charAt(0) != '/') {
+      return false;
+    }
+    // The root path has no segments, unlike "/x/" which ends in an empty one
+    int start = end == 1 ? 2 : 1;
+    return find(root, method.ordinal(), uri, start, end, out, 0);
+  }
+
+  // Matches the segment starting at pos, or ends the match if pos is past the end
+  private static boolean find(
+      Node node, int method, String uri, int pos, int end, RouteMatch out, int params) {
+    if (pos > end) {
+      return accept(node, method, out);
+    }
+
+    int segmentEnd = uri.indexOf('/', pos);
+    if (segmentEnd < 0 || segmentEnd > end) {
+      segmentEnd = end;
+    }
+    int length = segmentEnd - pos;
+
+    for (Node child : node.statics) {
+      if (child.label.length() == length
+          && uri.regionMatches(pos, child.label, 0, length)
+          && find(child, method, uri, segmentEnd + 1, end, out, params)) {
+        return true;
+      }
+    }
+    if (node.param != null && length > 0) {
+      out.bind(params, pos, segmentEnd);
+      if (find(node.param, method, uri, segmentEnd + 1, end, out, params + 1)) {
+        return true;
+      }
+    }
+    if (node.wildcard != null) {
+      out.bind(params, pos, end);
+      return accept(node.wildcard, method, out);
+    }
+    return false;
+  }
+
+  private static boolean accept(Node node, int method, RouteMatch out) {
+    RouteHandle handler = node.handlers[method];
+    if (handler == null) {
+      return false;
+    }
+    out.set(handler, node.names[method], node.blocking[method]);
+    return true;
+  }
+}
@@ -1,16 +1,58 @@
 package server;
 
-import io.netty.buffer.Unpooled;
-import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Dispatches requests to the registered routes. Blocking routes run on the given executor and
+ * answer back on the channel's event loop. While one runs, reading stops and requests already
+ * decoded wait in a queue, so pipelined requests are still answered in order.
+ */
 public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
 
+  private final Executor blocking;
+
+  // Reused for every request on this connection; a blocking handler owns it until it answers
+  private final RouteMatch match = new RouteMatch();
+
+  private final ArrayDeque<FullHttpRequest> queued = new ArrayDeque<>();
+  private boolean busy;
+
+  public RouterHandler(Executor blocking) {
+    this.blocking = blocking;
+  }
+
   @Override
   protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
-    String path = request.uri().split("\\?")[0]; // Strip query params
+    if (busy) {
+      queued.add(request.retain());
+    } else {
+      route(ctx, request);
+    }
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    FullHttpRequest request;
+    while ((request = queued.poll()) != null) {
+      request.release();
+    }
+  }
+
+  private void route(ChannelHandlerContext ctx, FullHttpRequest request) {
+    String uri = request.uri();
+    int query = uri.indexOf('?');
+    int end = query < 0 ? uri.length() : query; // Strip query params
+    // HTTP/1.0 has no chunked encoding, so its bodies are always sent whole
+    int chunkSize =
+        request.protocolVersion().equals(HttpVersion.HTTP_1_0)
+            ? Integer.MAX_VALUE
+            : BodyOutput.CHUNK_SIZE;
     HandlerType method;
 
     try {
@@ -18,31 +60,126 @@ public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest>
     } catch (IllegalArgumentException e) {
       sendResponse(
           ctx,
+          chunkSize,
           new RouteResponse(
               "Unsupported HTTP method", "text/plain", HttpResponseStatus.METHOD_NOT_ALLOWED));
       return;
     }
 
-    RouteHandle handler = RouteRegistry.match(method, path);
-
-    if (handler != null) {
-      RouteResponse response = handler.handle(ctx, request);
-      sendResponse(ctx, response);
-    } else {
+    if (!RouteRegistry.match(method, uri, end, match)) {
       // Retain and pass the request along the pipeline
       ctx.fireChannelRead(request.retain());
+    } else if (match.blocking()) {
+      offload(ctx, request, chunkSize);
+    } else {
+      RouteResponse response;
+      try {
+        response = match.handler().handle(ctx, request, match);
+      } catch (Throwable e) {
+        answer(ctx, chunkSize, null, e);
+        return;
+      }
+      answer(ctx, chunkSize, response, null);
+    }
+  }
+
+  private void offload(ChannelHandlerContext ctx, FullHttpRequest request, int chunkSize) {
+    busy = true;
+    ctx.channel().config().setAutoRead(false);
+    request.retain();
+    RouteHandle handler = match.handler();
+    Runnable task =
+        () -> {
+          RouteResponse response = null;
+          Throwable error = null;
+          try {
+            response = handler.handle(ctx, request, match);
+          } catch (Throwable e) {
+            // Errors too, or the connection would wait for this answer forever
+            error = e;
+          } finally {
+            request.release();
+          }
+
+          RouteResponse result = response;
+          Throwable failure = error;
+          ctx.executor().execute(() -> finish(ctx, chunkSize, result, failure));
+        };
+
+    try {
+      blocking.execute(task);
+    } catch (RejectedExecutionException e) {
+      // Shutting down; answer here and read on as if the handler had failed
+      request.release();
+      finish(ctx, chunkSize, null, e);
     }
   }
 
-  private void sendResponse(ChannelHandlerContext ctx, RouteResponse response) {
-    byte[] content = response.body().getBytes();
-    FullHttpResponse nettyResponse =
-        new DefaultFullHttpResponse(
-            HttpVersion.HTTP_1_1, response.status(), Unpooled.wrappedBuffer(content));
+  // Answers a blocking request and goes on with the requests queued behind it, even if answering
+  // failed
+  private void finish(
+      ChannelHandlerContext ctx, int chunkSize, RouteResponse response, Throwable error) {
+    try {
+      answer(ctx, chunkSize, response, error);
+    } finally {
+      resume(ctx);
+    }
+  }
 
-    nettyResponse.headers().set(HttpHeaderNames.CONTENT_TYPE, response.contentType());
-    nettyResponse.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.length);
+  private void answer(
+      ChannelHandlerContext ctx, int chunkSize, RouteResponse response, Throwable error) {
+    if (error == null && response == null) {
+      error = new IllegalStateException("Route handler returned no response");
+    }
+    if (error != null) {
+      // Answered here so the connection goes on; the pipeline still reports the error
+      sendError(ctx);
+      ctx.fireExceptionCaught(error);
+    } else {
+      sendResponse(ctx, chunkSize, response);
+    }
+  }
+
+  // Routes the requests that arrived meanwhile until one blocks again, then reads on
+  private void resume(ChannelHandlerContext ctx) {
+    busy = false;
+    FullHttpRequest request;
+    while (!busy && (request = queued.poll()) != null) {
+      try {
+        route(ctx, request);
+      } catch (Throwable e) {
+        // The rest of the queue still gets answered, and reading resumes
+        ctx.fireExceptionCaught(e);
+      } finally {
+        request.release();
+      }
+    }
+    if (!busy) {
+      ctx.channel().config().setAutoRead(true);
+    }
+  }
+
+  private void sendResponse(ChannelHandlerContext ctx, int chunkSize, RouteResponse response) {
+    BodyOutput out = new BodyOutput(ctx, response.status(), response.contentType(), chunkSize);
+    try {
+      response.body().writeTo(out);
+    } catch (IOException | RuntimeException e) {
+      // Once chunks went out the status is sent, so the response can only be cut short
+      if (out.discard()) {
+        sendError(ctx);
+      } else {
+        ctx.close();
+      }
+      ctx.fireExceptionCaught(e);
+      return;
+    }
+    out.finish();
+  }
 
-    ctx.writeAndFlush(nettyResponse).addListener(ChannelFutureListener.CLOSE);
+  private void sendError(ChannelHandlerContext ctx) {
+    sendResponse(
+        ctx,
+        BodyOutput.CHUNK_SIZE,
+        new TextResponse("Internal server error", HttpResponseStatus.INTERNAL_SERVER_ERROR));
   }
 }
@@ -1,13 +1,18 @@
 package server;
 
+import game.SessionManager;
+import handlers.GameHandler;
 import handlers.HelloHandler;
 
 public class Routes {
-  public static void register() {
+  public static void register(SessionManager sessions) {
+    GameHandler games = new GameHandler(sessions);
 
     RouteDef[] routes =
         new RouteDef[] {
           new RouteDef(HandlerType.GET, HelloHandler.URL, HelloHandler::get),
+          new RouteDef(HandlerType.POST, GameHandler.URL, games::create),
+          new RouteDef(HandlerType.GET, GameHandler.GAME_URL, games::get),
         };
 
     for (RouteDef def : routes) {
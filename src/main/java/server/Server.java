@@ -1,51 +1,115 @@
 package server;
 
+import game.SessionManager;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolConfig;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
+  // Name of the idle timer, which WebSocket connections drop once upgraded
+  static final String IDLE = "idle";
 
-  private final int port;
+  private final ServerConfig config;
   private final String rootDir;
+  private final SessionManager sessions;
 
-  public Server(int port, String rootDir) {
-    this.port = port;
+  // Listening sockets, kept so another thread can stop the server
+  private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+  public Server(ServerConfig config, String rootDir, SessionManager sessions) {
+    this.config = config;
     this.rootDir = rootDir;
+    this.sessions = sessions;
   }
 
   public void run() throws Exception {
-    EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-    EventLoopGroup workerGroup = new NioEventLoopGroup();
+    Transport transport = Transport.select(config.transport());
+    // Several acceptors need SO_REUSEPORT; without it the port binds once
+    int acceptors = transport.reusePort() != null ? Math.max(1, config.acceptors()) : 1;
+    // Each listening socket registers with one boss loop, so give every acceptor its own
+    EventLoopGroup bossGroup = transport.newGroup(Math.max(config.bossThreads(), acceptors));
+    EventLoopGroup workerGroup = transport.newGroup(config.workerThreads());
+
+    // Upgrades requests under the game path and passes every other request on to the router
+    WebSocketServerProtocolConfig webSocket =
+        WebSocketServerProtocolConfig.newBuilder()
+            .websocketPath(GameSocketHandler.PATH)
+            .checkStartsWith(true)
+            .build();
+    Spectators spectators = new Spectators();
+    // Runs handlers of blocking routes, which would otherwise stall every connection on a loop
+    ExecutorService blocking = Executors.newVirtualThreadPerTaskExecutor();
 
     try {
       ServerBootstrap b = new ServerBootstrap();
 
       b.group(bossGroup, workerGroup)
-          .channel(NioServerSocketChannel.class)
+          .channel(transport.serverChannel())
+          .option(ChannelOption.SO_BACKLOG, config.backlog())
+          .childOption(ChannelOption.TCP_NODELAY, config.tcpNoDelay())
+          // Spectators past the high mark are skipped and resynced rather than buffered
+          .childOption(
+              ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(32 * 1024, 64 * 1024))
           .childHandler(
               new ChannelInitializer<SocketChannel>() {
                 @Override
                 protected void initChannel(SocketChannel ch) {
                   ChannelPipeline p = ch.pipeline();
                   p.addLast(new HttpServerCodec());
+                  p.addLast(new HttpServerKeepAliveHandler());
+                  // Observes output, so a slow client still draining a response is not idle
+                  p.addLast(
+                      IDLE,
+                      new IdleStateHandler(true, 0, 0, config.idleSeconds(), TimeUnit.SECONDS));
+                  p.addLast(new ConnectionPolicyHandler(config.maxRequests()));
                   p.addLast(new HttpObjectAggregator(65536));
+                  p.addLast(new WebSocketServerProtocolHandler(webSocket));
+                  p.addLast(new GameSocketHandler(sessions, spectators));
                   p.addLast(new ChunkedWriteHandler());
-                  p.addLast(new RouterHandler());
-                  p.addLast(new StaticFileServerHandler(rootDir));
+                  p.addLast(new RouterHandler(blocking));
+                  p.addLast(new StaticFileServerHandler(rootDir, transport.fileRegions()));
                 }
               });
 
-      Channel ch = b.bind(port).sync().channel();
-      System.out.println("Server running at http://localhost:" + port + '/');
-      ch.closeFuture().sync();
+      if (acceptors > 1) {
+        b.option(transport.reusePort(), true);
+      }
+
+      for (int i = 0; i < acceptors; i++) {
+        channels.add(b.bind(config.port()).sync().channel());
+      }
+      System.out.println(
+          "Server running at http://localhost:"
+              + config.port()
+              + "/ ("
+              + transport
+              + ", "
+              + acceptors
+              + (acceptors == 1 ? " acceptor)" : " acceptors)"));
+      for (Channel ch : channels) {
+        ch.closeFuture().sync();
+      }
     } finally {
       bossGroup.shutdownGracefully();
       workerGroup.shutdownGracefully();
+      blocking.shutdown();
+    }
+  }
+
+  /** Closes the listening sockets, which makes {@link #run} return. */
+  public void stop() {
+    for (Channel ch : channels) {
+      ch.close().syncUninterruptibly();
     }
   }
 }
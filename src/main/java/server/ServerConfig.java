@@ -0,0 +1,39 @@
+package server;
+
+import util.EnvLoader;
+
+/**
+ * Network settings of the {@link Server}.
+ *
+ * @param transport "auto", "epoll", "io_uring" or "nio"; "auto" picks epoll where it loads and NIO
+ *     elsewhere, never io_uring; see {@link Transport#select}
+ * @param workerThreads event loops serving connections, 0 for Netty's default
+ * @param acceptors listening sockets bound to the port with SO_REUSEPORT, each with its own boss
+ *     loop; only native transports support more than one
+ * @param idleSeconds how long a kept-alive HTTP connection may go without traffic
+ * @param maxRequests requests served on one HTTP connection before it is closed
+ */
+public record ServerConfig(
+    int port,
+    String transport,
+    int bossThreads,
+    int workerThreads,
+    int acceptors,
+    int backlog,
+    boolean tcpNoDelay,
+    int idleSeconds,
+    int maxRequests) {
+
+  public static ServerConfig fromEnv() {
+    return new ServerConfig(
+        EnvLoader.getInt("SERVER_PORT", 4000),
+        EnvLoader.get("SERVER_TRANSPORT", "auto"),
+        EnvLoader.getInt("SERVER_BOSS_THREADS", 1),
+        EnvLoader.getInt("SERVER_WORKER_THREADS", 0),
+        EnvLoader.getInt("SERVER_ACCEPTORS", 1),
+        EnvLoader.getInt("SERVER_BACKLOG", 1024),
+        EnvLoader.getBoolean("SERVER_TCP_NODELAY", true),
+        EnvLoader.getInt("SERVER_IDLE_SECONDS", 60),
+        EnvLoader.getInt("SERVER_MAX_REQUESTS", 1000));
+  }
+}
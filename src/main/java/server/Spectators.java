@@ -0,0 +1,139 @@
+package server;
+
+import game.GameSession;
+import game.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spectator sockets of every game. A game's audience is a single listener on its session, so each
+ * delta is encoded once however many spectators watch. The audience keeps one channel group per
+ * event loop and hands every loop one task that writes duplicates of the shared frame to its
+ * channels, instead of one cross-thread write per channel.
+ *
+ * <p>A channel that is not writable when a delta arrives is dropped from its group rather than
+ * queued, so a stalled spectator never holds more than the write buffer's high water mark. Its
+ * view is then stale, so {@link #rejoin} sends it a fresh view once it drains.
+ *
+ * <p>An audience lives only as long as it has spectators or its game goes on: the last spectator
+ * to {@link #leave}, or the end of the game, unsubscribes it and drops it from the map.
+ */
+public class Spectators {
+  private final ConcurrentHashMap<Long, Audience> audiences = new ConcurrentHashMap<>();
+
+  // Sends the channel the game's current view and adds it to the audience for every later delta
+  void join(GameSession session, Channel channel) {
+    Audience audience =
+        audiences.compute(
+            session.id(),
+            (id, existing) -> {
+              Audience joined = existing;
+              if (joined == null) {
+                joined = new Audience(id);
+                session.subscribe(Side.NEITHER, joined);
+              }
+              joined.members.add(channel);
+              return joined;
+            });
+    sendView(session, audience, channel);
+  }
+
+  // Joins again a channel that was dropped for falling behind
+  void rejoin(GameSession session, Channel channel) {
+    Audience audience = audiences.get(session.id());
+    if (audience != null && audience.members.contains(channel) && !audience.contains(channel)) {
+      sendView(session, audience, channel);
+    }
+  }
+
+  // Removes a closed channel, and the audience with it if that was its last spectator
+  void leave(GameSession session, Channel channel) {
+    audiences.computeIfPresent(
+        session.id(),
+        (id, audience) -> {
+          if (!audience.members.remove(channel) || !audience.members.isEmpty()) {
+            return audience;
+          }
+          session.unsubscribe(Side.NEITHER, audience);
+          return null;
+        });
+  }
+
+  // The game's audience, or null if nobody spectates it
+  GameSession.Listener audience(long id) {
+    return audiences.get(id);
+  }
+
+  private static void sendView(GameSession session, Audience audience, Channel channel) {
+    session.view(
+        Side.NEITHER,
+        frame -> {
+          // On the session's thread, so the next delta already includes this channel
+          channel.writeAndFlush(new BinaryWebSocketFrame(frame));
+          audience.add(channel);
+        });
+  }
+
+  private final class Audience implements GameSession.Listener {
+    private final long id;
+
+    // Every spectator, including those dropped from their group until they rejoin
+    private final Set<Channel> members = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentHashMap<EventLoop, ChannelGroup> groups = new ConcurrentHashMap<>();
+
+    Audience(long id) {
+      this.id = id;
+    }
+
+    void add(Channel channel) {
+      groups.computeIfAbsent(channel.eventLoop(), DefaultChannelGroup::new).add(channel);
+    }
+
+    boolean contains(Channel channel) {
+      ChannelGroup group = groups.get(channel.eventLoop());
+      return group != null && group.contains(channel);
+    }
+
+    @Override
+    public void send(ByteBuf frame) {
+      try {
+        groups.forEach(
+            (loop, group) -> {
+              if (!group.isEmpty()) {
+                ByteBuf shared = frame.retainedDuplicate();
+                loop.execute(() -> deliver(group, shared));
+              }
+            });
+      } finally {
+        frame.release();
+      }
+    }
+
+    // The session already let go of this audience; later spectators of the game get a new one
+    @Override
+    public void ended() {
+      audiences.remove(id, this);
+    }
+
+    private static void deliver(ChannelGroup group, ByteBuf frame) {
+      try {
+        for (Channel channel : group) {
+          if (channel.isWritable()) {
+            channel.writeAndFlush(new BinaryWebSocketFrame(frame.retainedDuplicate()));
+          } else {
+            group.remove(channel);
+          }
+        }
+      } finally {
+        frame.release();
+      }
+    }
+  }
+}
@@ -1,7 +1,6 @@
 package server;
 
 import io.netty.buffer.Unpooled;
-import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -9,14 +8,15 @@ import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedNioFile;
 import java.io.File;
-import java.io.RandomAccessFile;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -26,8 +26,17 @@ public class StaticFileServerHandler extends SimpleChannelInboundHandler<FullHtt
 
   private final String rootDir;
 
+  // Whether the channel can send a file region; otherwise files go out in chunks
+  private final boolean fileRegions;
+
   public StaticFileServerHandler(String rootDir) {
+    this(rootDir, true);
+  }
+
+  /** @param fileRegions false on transports that cannot write a {@link DefaultFileRegion} */
+  public StaticFileServerHandler(String rootDir, boolean fileRegions) {
     this.rootDir = rootDir;
+    this.fileRegions = fileRegions;
   }
 
   @Override
@@ -59,21 +68,24 @@ public class StaticFileServerHandler extends SimpleChannelInboundHandler<FullHtt
       return;
     }
 
-    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-      long fileLength = raf.length();
-
-      HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-      String contentType = Files.probeContentType(Paths.get(file.getPath()));
-      response
-          .headers()
-          .set(
-              HttpHeaderNames.CONTENT_TYPE,
-              contentType != null ? contentType : "application/octet-stream");
-      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, fileLength);
+    long fileLength = file.length();
+    HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    String contentType = Files.probeContentType(Paths.get(file.getPath()));
+    response
+        .headers()
+        .set(
+            HttpHeaderNames.CONTENT_TYPE,
+            contentType != null ? contentType : "application/octet-stream");
+    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, fileLength);
 
-      ctx.write(response);
-      ctx.write(new DefaultFileRegion(raf.getChannel(), 0, fileLength));
+    ctx.write(response);
+    if (fileRegions) {
+      // The region opens the file itself and closes it once sent, which may be after this returns
+      ctx.write(new DefaultFileRegion(file, 0, fileLength));
       ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+    } else {
+      // Read by the ChunkedWriteHandler as the channel drains; ends with the last content
+      ctx.writeAndFlush(new HttpChunkedInput(new ChunkedNioFile(file, BodyOutput.CHUNK_SIZE)));
     }
   }
 
@@ -86,6 +98,7 @@ public class StaticFileServerHandler extends SimpleChannelInboundHandler<FullHtt
                 ("Failure: " + status + "\r\n").getBytes(StandardCharsets.UTF_8)));
 
     response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
-    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+    ctx.writeAndFlush(response);
   }
 }
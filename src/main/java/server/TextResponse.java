@@ -4,6 +4,6 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 
 public class TextResponse extends RouteResponse {
   public TextResponse(String body, HttpResponseStatus status) {
-    super(body, "text/plain", status);
+    super(body, "text/plain; charset=UTF-8", status);
   }
 }
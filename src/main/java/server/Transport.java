@@ -0,0 +1,80 @@
+package server;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import java.util.Locale;
+
+/** Netty transports the server can run on. The native ones load only on Linux. */
+enum Transport {
+  IO_URING,
+  EPOLL,
+  NIO;
+
+  boolean isAvailable() {
+    return switch (this) {
+      case IO_URING -> IOUring.isAvailable();
+      case EPOLL -> Epoll.isAvailable();
+      case NIO -> true;
+    };
+  }
+
+  /** @param threads event loops in the group, 0 for Netty's default */
+  EventLoopGroup newGroup(int threads) {
+    return switch (this) {
+      case IO_URING -> new IOUringEventLoopGroup(threads);
+      case EPOLL -> new EpollEventLoopGroup(threads);
+      case NIO -> new NioEventLoopGroup(threads);
+    };
+  }
+
+  Class<? extends ServerChannel> serverChannel() {
+    return switch (this) {
+      case IO_URING -> IOUringServerSocketChannel.class;
+      case EPOLL -> EpollServerSocketChannel.class;
+      case NIO -> NioServerSocketChannel.class;
+    };
+  }
+
+  // Whether channels can write a FileRegion; io_uring channels reject it
+  boolean fileRegions() {
+    return this != IO_URING;
+  }
+
+  // SO_REUSEPORT, or null where the transport does not expose it
+  ChannelOption<Boolean> reusePort() {
+    return switch (this) {
+      case IO_URING -> IOUringChannelOption.SO_REUSEPORT;
+      case EPOLL -> EpollChannelOption.SO_REUSEPORT;
+      case NIO -> null;
+    };
+  }
+
+  /**
+   * Picks the transport named in the configuration. "auto" prefers epoll, the most mature native
+   * transport, and otherwise NIO; it never picks io_uring, which has to be asked for by name. A
+   * native transport that cannot load falls back to NIO.
+   */
+  static Transport select(String name) {
+    if (name == null || name.equalsIgnoreCase("auto")) {
+      return EPOLL.isAvailable() ? EPOLL : NIO;
+    }
+
+    Transport transport = valueOf(name.trim().toUpperCase(Locale.ROOT));
+    if (!transport.isAvailable()) {
+      System.out.println("Transport " + name + " is unavailable here, falling back to NIO");
+      return NIO;
+    }
+    return transport;
+  }
+}
@@ -32,4 +32,19 @@ public class EnvLoader {
     String value = System.getenv(key);
     return (value != null) ? value : fileVars.get(key);
   }
+
+  public static String get(String key, String fallback) {
+    String value = get(key);
+    return (value != null) ? value : fallback;
+  }
+
+  public static int getInt(String key, int fallback) {
+    String value = get(key);
+    return (value != null) ? Integer.parseInt(value.trim()) : fallback;
+  }
+
+  public static boolean getBoolean(String key, boolean fallback) {
+    String value = get(key);
+    return (value != null) ? Boolean.parseBoolean(value.trim()) : fallback;
+  }
 }
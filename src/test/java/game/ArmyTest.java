@@ -1,7 +1,8 @@
 package game;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.NoSuchElementException;
 import org.junit.jupiter.api.Test;
 
 class ArmyTest {
@@ -16,4 +17,46 @@ class ArmyTest {
     assertEquals(Side.A, new Army(Side.A).pieces.getFirst().side);
     assertEquals(Side.B, new Army(Side.B).pieces.getFirst().side);
   }
+
+  @Test
+  void testRankIndex() {
+    Army army = new Army(Side.A);
+    assertEquals(8, army.piecesOfRank(Piece.SCOUT).length);
+    assertEquals(6, army.liveCount(Piece.BOMB));
+    assertEquals(1, army.liveCount(Piece.FLAG));
+    assertEquals(33, army.movableCount());
+    assertEquals(Piece.SPY, army.findAnyByRank(Piece.SPY).rank);
+  }
+
+  @Test
+  void testCountsFollowCombat() {
+    Board board = new Board();
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece bomb = board.B.findAnyByRank(Piece.BOMB);
+    board.place(scout, 0, 1);
+    board.place(bomb, 0, 6);
+    int material = board.A.material();
+
+    board.makeMove(Move.encode(Bitboard.index(0, 1), Bitboard.index(0, 6), Move.CAPTURE));
+    assertEquals(7, board.A.liveCount(Piece.SCOUT));
+    assertEquals(32, board.A.movableCount());
+    assertEquals(material - Army.MATERIAL[Piece.SCOUT - Piece.FLAG], board.A.material());
+    assertTrue(board.materialBalance(Side.B) > 0);
+
+    board.unmakeMove();
+    assertEquals(8, board.A.liveCount(Piece.SCOUT));
+    assertEquals(0, board.materialBalance(Side.A));
+  }
+
+  @Test
+  void testIndexFollowsRankChanges() {
+    Board board = new Board();
+    Piece piece = board.B.findAnyByRank(Piece.FLAG);
+    board.setRank(piece, Piece.SPY);
+
+    assertEquals(0, board.B.liveCount(Piece.FLAG));
+    assertEquals(2, board.B.liveCount(Piece.SPY));
+    assertEquals(2, board.B.piecesOfRank(Piece.SPY).length);
+    assertThrows(NoSuchElementException.class, () -> board.B.findAnyByRank(Piece.FLAG));
+  }
 }
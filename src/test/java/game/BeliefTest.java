@@ -0,0 +1,100 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BeliefTest {
+  Board board;
+  Belief belief;
+
+  @BeforeEach
+  void setUp() {
+    board = new Board();
+    belief = new Belief(board.B);
+  }
+
+  @Test
+  void testPrior() {
+    Piece piece = board.B.pieces.getFirst();
+    assertEquals(6.0 / 40, belief.probability(piece, Piece.BOMB), 1e-9);
+    assertEquals(8.0 / 40, belief.probability(piece, Piece.SCOUT), 1e-9);
+    assertEquals(1.0 / 40, belief.probability(piece, Piece.FLAG), 1e-9);
+
+    double[] distribution = new double[Piece.RANKS];
+    belief.distribution(piece, distribution);
+    double total = 0;
+    for (double p : distribution) {
+      total += p;
+    }
+    assertEquals(1, total, 1e-9);
+  }
+
+  @Test
+  void testMovedPieceIsNotBomb() {
+    Piece general = board.B.findAnyByRank(9);
+    board.place(general, 4, 6);
+    belief.update(board.move(general, 4, 5));
+
+    assertEquals(0.0, belief.probability(general, Piece.BOMB));
+    assertEquals(0.0, belief.probability(general, Piece.FLAG));
+    assertEquals(8.0 / 33, belief.probability(general, Piece.SCOUT), 1e-9);
+  }
+
+  @Test
+  void testLongMoveIsScout() {
+    Piece scout = board.B.findAnyByRank(Piece.SCOUT);
+    Piece other = board.B.findAnyByRank(Piece.MARSHAL);
+    board.place(scout, 0, 6);
+    belief.update(board.move(scout, 0, 2));
+
+    assertEquals(1.0, belief.probability(scout, Piece.SCOUT));
+    assertEquals(7.0 / 39, belief.probability(other, Piece.SCOUT), 1e-9);
+  }
+
+  @Test
+  void testCombatReveals() {
+    Piece spy = board.A.findAnyByRank(Piece.SPY);
+    Piece marshal = board.B.findAnyByRank(Piece.MARSHAL);
+    Piece other = board.B.findAnyByRank(9);
+    board.place(spy, 0, 3);
+    board.place(marshal, 0, 6);
+    belief.update(board.move(spy, 0, 4));
+    belief.update(board.move(spy, 0, 5));
+    belief.update(board.move(spy, 0, 6));
+
+    assertEquals(1.0, belief.probability(marshal, Piece.MARSHAL));
+    assertEquals(0.0, belief.probability(other, Piece.MARSHAL));
+  }
+
+  @Test
+  void testSample() {
+    Piece general = board.B.findAnyByRank(9);
+    board.place(general, 4, 6);
+    belief.update(board.move(general, 4, 5));
+
+    // Most constrained first
+    Piece[] pieces = board.B.pieces.toArray(new Piece[0]);
+    pieces[general.id - Army.SIZE] = pieces[0];
+    pieces[0] = general;
+
+    int[] ranks = new int[pieces.length];
+    int[] counts = new int[Piece.RANKS];
+    SplittableRandom random = new SplittableRandom(1);
+    for (int n = 0; n < 100; n++) {
+      belief.sample(pieces, ranks, random);
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < ranks.length; i++) {
+        counts[ranks[i] - Piece.FLAG]++;
+        if (pieces[i] == general) {
+          assertTrue(ranks[i] != Piece.BOMB && ranks[i] != Piece.FLAG);
+        }
+      }
+      assertEquals(6, counts[Piece.BOMB - Piece.FLAG]);
+      assertEquals(1, counts[Piece.FLAG - Piece.FLAG]);
+    }
+  }
+}
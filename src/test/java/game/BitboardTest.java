@@ -0,0 +1,54 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BitboardTest {
+
+  @Test
+  void testSetAndClear() {
+    Bitboard b = new Bitboard();
+    assertTrue(b.isEmpty());
+
+    b.set(0);
+    b.set(63);
+    b.set(64);
+    b.set(99);
+    assertEquals(4, b.count());
+    assertTrue(b.test(63));
+    assertTrue(b.test(64));
+    assertFalse(b.test(65));
+
+    b.clear(63);
+    assertFalse(b.test(63));
+    assertEquals(3, b.count());
+  }
+
+  @Test
+  void testNext() {
+    Bitboard b = new Bitboard();
+    assertEquals(-1, b.next(0));
+
+    b.set(5);
+    b.set(70);
+    assertEquals(5, b.next(0));
+    assertEquals(70, b.next(6));
+    assertEquals(-1, b.next(71));
+  }
+
+  @Test
+  void testNeighbours() {
+    assertEquals(2, Bitboard.NEIGHBOURS[Bitboard.index(0, 0)].count());
+    assertEquals(3, Bitboard.NEIGHBOURS[Bitboard.index(0, 5)].count());
+    assertEquals(4, Bitboard.NEIGHBOURS[Bitboard.index(5, 5)].count());
+    assertFalse(Bitboard.NEIGHBOURS[Bitboard.index(9, 0)].test(Bitboard.index(0, 1)));
+  }
+
+  @Test
+  void testLakes() {
+    assertEquals(8, Board.LAKES.count());
+    assertTrue(Board.isLakeTile(2, 4));
+    assertFalse(Board.isLakeTile(4, 4));
+  }
+}
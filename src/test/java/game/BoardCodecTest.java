@@ -0,0 +1,127 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class BoardCodecTest {
+
+  private static void assertSameState(Board expected, Board actual) {
+    assertEquals(expected.hash(), actual.hash());
+    for (int id = 0; id < 2 * Army.SIZE; id++) {
+      Piece a = expected.piece(id);
+      Piece b = actual.piece(id);
+      assertEquals(a.rank, b.rank);
+      assertEquals(a.side, b.side);
+      assertEquals(a.alive, b.alive);
+      assertEquals(a.revealed, b.revealed);
+      assertEquals(a.position == null, b.position == null);
+      if (a.position != null) {
+        assertEquals(a.position.x, b.position.x);
+        assertEquals(a.position.y, b.position.y);
+      }
+    }
+  }
+
+  @Test
+  void testRoundTrip() {
+    Board board = new Board();
+    SplittableRandom random = new SplittableRandom(7);
+    SelfPlay.randomSetup(board, board.A, random);
+    SelfPlay.randomSetup(board, board.B, random);
+
+    int[] moves = new int[Move.MAX_MOVES];
+    Side side = Side.A;
+    for (int i = 0; i < 200; i++) {
+      int count = board.generateMoves(side, moves);
+      if (count == 0) {
+        break;
+      }
+      board.move(moves[random.nextInt(count)]);
+      side = Side.getOpposite(side);
+    }
+
+    ByteBuf buf = Unpooled.buffer();
+    BoardCodec.encode(board, buf);
+    assertEquals(BoardCodec.SIZE, buf.readableBytes());
+
+    Board decoded = BoardCodec.decode(buf);
+    assertSameState(board, decoded);
+    assertEquals(0, buf.readableBytes());
+  }
+
+  @Test
+  void testDecodeIntoExistingBoard() {
+    Board board = new Board();
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    board.place(scout, 3, 3);
+
+    Board target = new Board();
+    target.place(target.A.findAnyByRank(Piece.MARSHAL), 3, 3);
+    target.place(target.B.findAnyByRank(Piece.BOMB), 9, 9);
+
+    ByteBuf buf = Unpooled.buffer();
+    BoardCodec.encode(board, buf);
+    BoardCodec.decode(buf, target);
+    assertSameState(board, target);
+  }
+
+  @Test
+  void testCustomRanks() {
+    Board board = new Board();
+    Piece piece = board.B.pieces.getFirst();
+    board.place(piece, 4, 8);
+    board.setRank(piece, Piece.SPY);
+
+    ByteBuf buf = Unpooled.buffer();
+    BoardCodec.encode(board, buf);
+    assertEquals(BoardCodec.MAX_SIZE, buf.readableBytes());
+    assertSameState(board, BoardCodec.decode(buf));
+  }
+
+  @Test
+  void testRejectsUnknownVersion() {
+    ByteBuf buf = Unpooled.buffer();
+    buf.writeByte(0x0F);
+    assertThrows(IllegalArgumentException.class, () -> BoardCodec.decode(buf));
+  }
+
+  @Test
+  void testRejectedSnapshotLeavesBoardAlone() {
+    Board board = new Board();
+    board.place(board.A.findAnyByRank(Piece.SCOUT), 3, 3);
+    ByteBuf buf = Unpooled.buffer();
+    BoardCodec.encode(board, buf);
+    // Put the last piece on a lake
+    buf.setByte(BoardCodec.SIZE - 1, Bitboard.index(2, 4));
+
+    Board target = new Board();
+    target.place(target.A.findAnyByRank(Piece.MARSHAL), 5, 2);
+    long hash = target.hash();
+    assertThrows(IllegalArgumentException.class, () -> BoardCodec.decode(buf, target));
+    assertEquals(hash, target.hash());
+    assertNotNull(target.A.findAnyByRank(Piece.MARSHAL).position);
+  }
+
+  @Test
+  void testRejectsSharedSquare() {
+    Board board = new Board();
+    board.place(board.A.pieces.get(0), 3, 3);
+    board.place(board.A.pieces.get(1), 4, 3);
+    ByteBuf buf = Unpooled.buffer();
+    BoardCodec.encode(board, buf);
+    buf.setByte(2, Bitboard.index(3, 3));
+    assertThrows(IllegalArgumentException.class, () -> BoardCodec.decode(buf));
+  }
+
+  @Test
+  void testRejectsTruncatedSnapshot() {
+    ByteBuf buf = Unpooled.buffer();
+    BoardCodec.encode(new Board(), buf);
+    buf.writerIndex(BoardCodec.SIZE - 1);
+    assertThrows(IllegalArgumentException.class, () -> BoardCodec.decode(buf));
+  }
+}
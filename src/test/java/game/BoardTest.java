@@ -2,6 +2,9 @@ package game;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -49,6 +52,20 @@ class BoardTest {
     assertFalse(board.place(board.B.pieces.getFirst(), 0, 5));
   }
 
+  @Test
+  void testLakePlacement() {
+    assertFalse(board.place(board.A.pieces.getFirst(), 2, 4));
+    assertFalse(board.place(board.B.pieces.getFirst(), 7, 5));
+
+    int[] squares = new int[Army.SIZE];
+    for (int i = 0; i < squares.length; i++) {
+      squares[i] = i; // rows 0 to 3
+    }
+    squares[7] = Bitboard.index(2, 4);
+    assertFalse(board.placeArmy(board.A, squares));
+    assertEquals(0, board.occupancy(Side.A).count());
+  }
+
   @Test
   void testDublicatePiecePlacement() {
     assertTrue(board.place(board.A.pieces.getFirst(), 0, 0));
@@ -155,4 +172,291 @@ class BoardTest {
     assertFalse(marshal.alive);
     assertTrue(spy.alive);
   }
+
+  @Test
+  void testGenerateMoves() {
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece marshal = board.B.findAnyByRank(10);
+    assertTrue(board.place(scout, 0, 0));
+    assertTrue(board.place(marshal, 0, 6));
+
+    int[] buffer = new int[Move.MAX_MOVES];
+    int count = board.generateMoves(Side.A, buffer);
+    assertEquals(board.validMoves(scout).size(), count);
+
+    int captures = 0;
+    for (int i = 0; i < count; i++) {
+      int move = buffer[i];
+      int to = Move.to(move);
+      assertEquals(Bitboard.index(0, 0), Move.from(move));
+      assertTrue(board.isValidMove(scout, Bitboard.x(to), Bitboard.y(to)));
+      if (Move.isCapture(move)) {
+        captures++;
+        assertEquals(Bitboard.index(0, 6), to);
+      }
+    }
+    assertEquals(1, captures);
+    assertEquals(15, count);
+  }
+
+  @Test
+  void testIsValidMove() {
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece miner = board.A.findAnyByRank(3);
+    assertTrue(board.place(scout, 2, 1));
+    assertTrue(board.place(miner, 4, 1));
+
+    assertTrue(board.isValidMove(scout, 2, 3));
+    assertFalse(board.isValidMove(scout, 2, 4), "Lake");
+    assertFalse(board.isValidMove(scout, 2, 6), "Beyond lake");
+    assertTrue(board.isValidMove(scout, 3, 1));
+    assertFalse(board.isValidMove(scout, 4, 1), "Own piece");
+    assertFalse(board.isValidMove(scout, 5, 1), "Beyond own piece");
+    assertFalse(board.isValidMove(scout, 3, 2), "Diagonal");
+    assertFalse(board.isValidMove(miner, 4, 3), "Miners move one square");
+
+    assertTrue(board.move(Move.encode(Bitboard.index(2, 1), Bitboard.index(2, 3), 0)).moved);
+    assertEquals(3, scout.position.y);
+  }
+
+  @Test
+  void testMakeUnmakeMove() {
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece marshal = board.B.findAnyByRank(10);
+    Piece spy = board.A.findAnyByRank(Piece.SPY);
+    board.place(scout, 1, 0);
+    board.place(spy, 0, 3);
+    board.place(marshal, 0, 6);
+
+    int scoutMove = Move.encode(Bitboard.index(1, 0), Bitboard.index(1, 3), 0);
+    int spyMove = Move.encode(Bitboard.index(0, 3), Bitboard.index(0, 4), 0);
+    int spyAdvance = Move.encode(Bitboard.index(0, 4), Bitboard.index(0, 5), 0);
+    int attack = Move.encode(Bitboard.index(0, 5), Bitboard.index(0, 6), Move.CAPTURE);
+
+    assertEquals(Engagement.INVALID, board.makeMove(scoutMove));
+    assertEquals(Engagement.INVALID, board.makeMove(spyMove));
+    assertEquals(Engagement.INVALID, board.makeMove(spyAdvance));
+    assertEquals(Engagement.WIN, board.makeMove(attack));
+    assertFalse(marshal.alive);
+    assertTrue(spy.revealed);
+    assertEquals(spy, board.getPiece(0, 6).get());
+
+    board.unmakeMove();
+    assertTrue(marshal.alive);
+    assertFalse(marshal.revealed);
+    assertFalse(spy.revealed);
+    assertEquals(marshal, board.getPiece(0, 6).get());
+    assertEquals(spy, board.getPiece(0, 5).get());
+
+    board.unmakeMove();
+    board.unmakeMove();
+    board.unmakeMove();
+    assertEquals(0, scout.position.y);
+    assertEquals(3, spy.position.y);
+    assertTrue(board.isOccupiedByOpposite(Side.A, 0, 6));
+  }
+
+  @Test
+  void testUnmakeLostAttack() {
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece bomb = board.B.findAnyByRank(Piece.BOMB);
+    board.place(scout, 0, 1);
+    board.place(bomb, 0, 6);
+
+    assertEquals(
+        Engagement.LOSE,
+        board.makeMove(Move.encode(Bitboard.index(0, 1), Bitboard.index(0, 6), Move.CAPTURE)));
+    assertFalse(scout.alive);
+    assertNull(scout.position);
+
+    board.unmakeMove();
+    assertTrue(scout.alive);
+    assertEquals(1, scout.position.y);
+    assertEquals(scout, board.getPiece(0, 1).get());
+    assertEquals(bomb, board.getPiece(0, 6).get());
+    assertFalse(bomb.revealed);
+  }
+
+  @Test
+  void testHash() {
+    long empty = board.hash();
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece miner = board.A.findAnyByRank(3);
+    Piece bomb = board.B.findAnyByRank(Piece.BOMB);
+    board.place(scout, 0, 1);
+    board.place(miner, 5, 1);
+    board.place(bomb, 0, 6);
+    long start = board.hash();
+    assertNotEquals(empty, start);
+
+    board.makeMove(Move.encode(Bitboard.index(0, 1), Bitboard.index(0, 2), 0));
+    board.makeMove(Move.encode(Bitboard.index(5, 1), Bitboard.index(5, 2), 0));
+    long afterScoutFirst = board.hash();
+    board.unmakeMove();
+    board.unmakeMove();
+    assertEquals(start, board.hash());
+
+    board.makeMove(Move.encode(Bitboard.index(5, 1), Bitboard.index(5, 2), 0));
+    board.makeMove(Move.encode(Bitboard.index(0, 1), Bitboard.index(0, 2), 0));
+    assertEquals(afterScoutFirst, board.hash(), "Transposed move order");
+
+    board.makeMove(Move.encode(Bitboard.index(0, 2), Bitboard.index(0, 6), Move.CAPTURE));
+    assertTrue(bomb.revealed);
+    board.unmakeMove();
+    assertEquals(afterScoutFirst, board.hash());
+  }
+
+  @Test
+  void testPlaceArmy() {
+    int[] squares = new int[Army.SIZE];
+    for (int i = 0; i < squares.length; i++) {
+      squares[i] = 60 + i; // rows 6 to 9
+    }
+    assertFalse(board.placeArmy(board.A, squares), "A cannot set up on B's rows");
+    assertTrue(board.placeArmy(board.B, squares));
+    assertEquals(40, board.occupancy(Side.B).count());
+    assertEquals(board.B.pieces.getFirst(), board.getPiece(0, 6).get());
+
+    // Reversing the setup moves pieces that are already on the board
+    for (int i = 0; i < squares.length; i++) {
+      squares[i] = 99 - i;
+    }
+    assertTrue(board.placeArmy(board.B, squares));
+    assertEquals(board.B.pieces.getFirst(), board.getPiece(9, 9).get());
+    assertEquals(40, board.occupancy(Side.B).count());
+
+    squares[1] = squares[0];
+    assertFalse(board.placeArmy(board.B, squares), "Duplicate square");
+    assertEquals(board.B.pieces.getFirst(), board.getPiece(9, 9).get());
+  }
+
+  @Test
+  void testFlagCaptureEndsGame() {
+    Piece miner = board.A.findAnyByRank(Piece.MINER);
+    Piece flag = board.B.findAnyByRank(Piece.FLAG);
+    Piece scout = board.B.findAnyByRank(Piece.SCOUT);
+    board.place(miner, 4, 3);
+    board.place(flag, 4, 6);
+    board.place(scout, 9, 9);
+
+    assertFalse(board.move(miner, 4, 4).gameOver);
+    assertFalse(board.move(miner, 4, 5).gameOver);
+    MovementResult res = board.move(miner, 4, 6);
+    assertTrue(res.gameOver);
+    assertEquals(Side.A, res.winner);
+    assertTrue(board.hasLost(Side.B));
+  }
+
+  @Test
+  void testNoMovesEndsGame() {
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece marshal = board.B.findAnyByRank(Piece.MARSHAL);
+    board.place(scout, 0, 0);
+    board.place(board.A.findAnyByRank(Piece.FLAG), 9, 0);
+    board.place(marshal, 0, 6);
+    board.place(board.B.findAnyByRank(Piece.FLAG), 9, 9);
+
+    assertEquals(1, board.mobility(Side.A).count());
+    MovementResult res = board.move(scout, 0, 6);
+    assertEquals(Engagement.LOSE, res.engagement);
+    assertFalse(res.gameOver, "B still has to move");
+    assertTrue(board.hasLost(Side.A), "A has only its flag left");
+
+    res = board.move(marshal, 0, 5);
+    assertTrue(res.gameOver);
+    assertEquals(Side.B, res.winner);
+  }
+
+  @Test
+  void testMobilityMatchesMoveGeneration() {
+    SplittableRandom random = new SplittableRandom(9);
+    SelfPlay.randomSetup(board, board.A, random);
+    SelfPlay.randomSetup(board, board.B, random);
+
+    int[] moves = new int[Move.MAX_MOVES];
+    Side side = Side.A;
+    for (int i = 0; i < 300; i++) {
+      for (Side s : new Side[] {Side.A, Side.B}) {
+        int count = board.generateMoves(s, moves);
+        Set<Integer> movers = new HashSet<>();
+        for (int j = 0; j < count; j++) {
+          movers.add(Move.from(moves[j]));
+        }
+        assertEquals(movers.size(), board.mobility(s).count());
+      }
+      int count = board.generateMoves(side, moves);
+      if (count == 0 || board.move(moves[random.nextInt(count)]).gameOver) {
+        break;
+      }
+      side = Side.getOpposite(side);
+    }
+  }
+
+  @Test
+  void testScoutRays() {
+    int[] up = Board.RAYS[Bitboard.index(2, 1) * 4 + 3];
+    assertArrayEquals(new int[] {Bitboard.index(2, 2), Bitboard.index(2, 3)}, up);
+    assertEquals(0, Board.RAYS[Bitboard.index(0, 0) * 4].length);
+    assertEquals(9, Board.RAYS[Bitboard.index(0, 0) * 4 + 1].length);
+
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    board.place(scout, 2, 1);
+    assertEquals(12, board.validMoves(scout).size());
+  }
+
+  @Test
+  void testTwoSquareRule() {
+    Piece piece = board.A.findAnyByRank(Piece.MINER);
+    board.place(piece, 0, 0);
+
+    assertTrue(board.move(piece, 0, 1).moved);
+    assertTrue(board.move(piece, 0, 0).moved);
+    assertTrue(board.move(piece, 0, 1).moved);
+    assertTrue(board.isRepetition(Move.encode(Bitboard.index(0, 1), Bitboard.index(0, 0), 0)));
+    assertFalse(board.move(piece, 0, 0).moved, "Fourth move between the same squares");
+    assertTrue(board.move(piece, 1, 1).moved);
+  }
+
+  @Test
+  void testRepeatedPositionRule() {
+    Piece piece = board.A.findAnyByRank(Piece.MINER);
+    board.place(piece, 0, 0);
+
+    int[][] cycle = {{0, 1}, {1, 1}, {1, 0}, {0, 0}};
+    for (int round = 0; round < 2; round++) {
+      for (int[] to : cycle) {
+        assertTrue(board.move(piece, to[0], to[1]).moved);
+      }
+    }
+    assertFalse(board.move(piece, 0, 1).moved, "Third occurrence of the same position");
+    assertEquals(0, piece.position.y);
+  }
+
+  @Test
+  void testOnlyForbiddenMovesEndsGame() {
+    // B's marshal is walled into two squares by its own flag and bombs
+    Piece marshal = board.B.findAnyByRank(Piece.MARSHAL);
+    Piece[] bombs = board.B.piecesOfRank(Piece.BOMB);
+    board.place(marshal, 0, 9);
+    board.place(bombs[0], 1, 9);
+    board.place(bombs[1], 1, 8);
+    board.place(board.B.findAnyByRank(Piece.FLAG), 0, 7);
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    board.place(scout, 9, 0);
+    board.place(board.A.findAnyByRank(Piece.FLAG), 0, 0);
+
+    for (int y = 1; y <= 2; y++) {
+      assertFalse(board.move(marshal, 0, marshal.position.y == 9 ? 8 : 9).gameOver);
+      assertFalse(board.move(scout, 9, y).gameOver);
+    }
+    assertFalse(board.hasOnlyForbiddenMoves(Side.B));
+    assertFalse(board.move(marshal, 0, 8).gameOver);
+
+    // Moving back now would be the fourth move between the same two squares
+    MovementResult res = board.move(scout, 9, 3);
+    assertTrue(res.gameOver);
+    assertEquals(Side.A, res.winner);
+    assertTrue(board.hasOnlyForbiddenMoves(Side.B));
+    assertFalse(board.hasLost(Side.B));
+  }
 }
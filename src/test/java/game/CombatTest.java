@@ -0,0 +1,56 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class CombatTest {
+
+  private static int bit(int rank) {
+    return 1 << (rank - Piece.FLAG);
+  }
+
+  @Test
+  void testResolve() {
+    assertEquals(Engagement.WIN, Combat.resolve(Piece.SPY, Piece.MARSHAL));
+    assertEquals(Engagement.WIN, Combat.resolve(Piece.MARSHAL, Piece.SPY));
+    assertEquals(Engagement.WIN, Combat.resolve(Piece.MINER, Piece.BOMB));
+    assertEquals(Engagement.LOSE, Combat.resolve(Piece.MARSHAL, Piece.BOMB));
+    assertEquals(Engagement.WIN, Combat.resolve(Piece.SCOUT, Piece.FLAG));
+    assertEquals(Engagement.DRAW, Combat.resolve(7, 7));
+    assertEquals(Engagement.LOSE, Combat.resolve(Piece.SPY, Piece.SCOUT));
+    assertEquals(Engagement.INVALID, Combat.resolve(Piece.BOMB, Piece.SPY));
+    assertEquals(Engagement.INVALID, Combat.resolve(Piece.FLAG, Piece.SPY));
+  }
+
+  @Test
+  void testMatchesPieceAttack() {
+    for (int attacker = Piece.SPY; attacker <= Piece.MARSHAL; attacker++) {
+      for (int defender = Piece.FLAG; defender <= Piece.MARSHAL; defender++) {
+        assertEquals(
+            Combat.resolve(attacker, defender), new Piece(attacker).attack(new Piece(defender)));
+      }
+    }
+  }
+
+  @Test
+  void testBatch() {
+    int candidates = bit(Piece.BOMB) | bit(Piece.SPY) | bit(Piece.MINER) | bit(Piece.MARSHAL);
+    assertEquals(bit(Piece.BOMB) | bit(Piece.SPY), Combat.wins(Piece.MINER, candidates));
+    assertEquals(bit(Piece.MARSHAL), Combat.losses(Piece.MINER, candidates));
+    assertEquals(bit(Piece.MINER), Combat.draws(Piece.MINER, candidates));
+  }
+
+  @Test
+  void testExpected() {
+    double[] weights = new double[Piece.RANKS];
+    weights[Piece.BOMB - Piece.FLAG] = 1;
+    weights[Piece.MARSHAL - Piece.FLAG] = 3;
+
+    double[] out = new double[Engagement.values().length];
+    Combat.expected(Piece.MINER, weights, out);
+    assertEquals(0.25, out[Engagement.WIN.ordinal()], 1e-9);
+    assertEquals(0.75, out[Engagement.LOSE.ordinal()], 1e-9);
+    assertEquals(0, out[Engagement.DRAW.ordinal()], 1e-9);
+  }
+}
@@ -0,0 +1,55 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GameRecordTest {
+  GameRecord record;
+  long[] hashes;
+
+  @BeforeEach
+  void setUp() {
+    Board board = new Board();
+    SplittableRandom random = new SplittableRandom(3);
+    SelfPlay.randomSetup(board, board.A, random);
+    SelfPlay.randomSetup(board, board.B, random);
+
+    record = new GameRecord(board, 8);
+    hashes = new long[101];
+    hashes[0] = board.hash();
+
+    int[] moves = new int[Move.MAX_MOVES];
+    Side side = Side.A;
+    for (int i = 0; i < 100; i++) {
+      int count = board.generateMoves(side, moves);
+      if (count == 0) {
+        break;
+      }
+      record.append(board.move(moves[random.nextInt(count)]), board);
+      hashes[record.size()] = board.hash();
+      side = Side.getOpposite(side);
+    }
+  }
+
+  @Test
+  void testReplay() {
+    assertEquals(100, record.size());
+    for (int ply = 0; ply <= record.size(); ply++) {
+      assertEquals(hashes[ply], record.replay(ply).hash(), "Ply " + ply);
+    }
+  }
+
+  @Test
+  void testValidatedReplay() {
+    int ply = record.size();
+    assertEquals(hashes[ply], record.replay(ply, true).hash());
+  }
+
+  @Test
+  void testOutOfRange() {
+    assertThrows(IndexOutOfBoundsException.class, () -> record.replay(record.size() + 1));
+  }
+}
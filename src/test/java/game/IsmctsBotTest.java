@@ -0,0 +1,52 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class IsmctsBotTest {
+
+  private final IsmctsBot bot = new IsmctsBot(Duration.ofMillis(100), 2, ForkJoinPool.commonPool());
+
+  @Test
+  void testCapturesFlag() {
+    Board board = new Board();
+    Piece miner = board.A.findAnyByRank(Piece.MINER);
+    Piece flagA = board.A.findAnyByRank(Piece.FLAG);
+    Piece flagB = board.B.findAnyByRank(Piece.FLAG);
+    Piece marshal = board.B.findAnyByRank(Piece.MARSHAL);
+    assertTrue(board.place(miner, 5, 3));
+    assertTrue(board.place(flagA, 0, 0));
+    flagB.revealed = true; // Known, so the capture is certain
+    assertTrue(board.place(flagB, 5, 6));
+    assertTrue(board.place(marshal, 9, 9));
+    assertTrue(board.move(miner, 5, 4).moved);
+    assertTrue(board.move(miner, 5, 5).moved);
+
+    int move = bot.chooseMove(board, Side.A);
+    assertEquals(Move.encode(Bitboard.index(5, 5), Bitboard.index(5, 6), Move.CAPTURE), move);
+  }
+
+  @Test
+  void testLeavesBoardUntouched() {
+    Board board = new Board();
+    Piece scout = board.A.findAnyByRank(Piece.SCOUT);
+    Piece hidden = board.B.findAnyByRank(Piece.BOMB);
+    board.place(scout, 0, 0);
+    board.place(hidden, 9, 9);
+    long hash = board.hash();
+
+    assertNotEquals(Move.NONE, bot.chooseMove(board, Side.A));
+    assertEquals(hash, board.hash());
+    assertEquals(Piece.BOMB, hidden.rank);
+  }
+
+  @Test
+  void testNoMoves() {
+    Board board = new Board();
+    board.place(board.A.findAnyByRank(Piece.BOMB), 0, 0);
+    assertEquals(Move.NONE, bot.chooseMove(board, Side.A));
+  }
+}
@@ -0,0 +1,38 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class SelfPlayTest {
+
+  @Test
+  void testRandomSetup() {
+    Board board = new Board();
+    SelfPlay.randomSetup(board, board.A, new SplittableRandom(1));
+    SelfPlay.randomSetup(board, board.B, new SplittableRandom(2));
+
+    assertEquals(40, board.occupancy(Side.A).count());
+    assertEquals(40, board.occupancy(Side.B).count());
+    for (Piece piece : board.A.pieces) {
+      assertTrue(board.isStartable(Side.A, piece.position.x, piece.position.y));
+    }
+    // A piece on a lake could never be attacked
+    for (Army army : new Army[] {board.A, board.B}) {
+      for (Piece piece : army.pieces) {
+        assertTrue(board.isPassable(piece.position.x, piece.position.y));
+      }
+    }
+  }
+
+  @Test
+  void testRun() throws Exception {
+    SelfPlay.Report report = new SelfPlay(SelfPlay.AGGRESSIVE, SelfPlay.RANDOM, 2).run(20, 42);
+
+    assertEquals(20, report.games());
+    assertEquals(20, report.winsA() + report.winsB() + report.draws());
+    assertTrue(report.plies() > 0);
+    assertTrue(report.gamesPerSecond() > 0);
+  }
+}
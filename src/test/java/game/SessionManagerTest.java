@@ -0,0 +1,306 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class SessionManagerTest {
+
+  // Keeps stored games in a map and counts saves
+  static final class MemoryStore implements SessionStore {
+    final Map<Long, StoredGame> games = new HashMap<>();
+    int saves;
+
+    @Override
+    public synchronized void save(long id, StoredGame game) {
+      games.put(id, game);
+      saves++;
+    }
+
+    @Override
+    public synchronized boolean contains(long id) {
+      return games.containsKey(id);
+    }
+
+    @Override
+    public synchronized StoredGame load(long id) {
+      return games.get(id);
+    }
+
+    @Override
+    public synchronized long lastId() {
+      return games.keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  static int firstMove(GameSession session, Side side) {
+    return session
+        .submit(
+            s -> {
+              int[] moves = new int[Move.MAX_MOVES];
+              s.board().generateMoves(side, moves);
+              return moves[0];
+            })
+        .join();
+  }
+
+  @Test
+  void testRegistry() {
+    try (SessionManager manager = new SessionManager()) {
+      GameSession first = manager.create();
+      GameSession second = manager.create();
+
+      assertNotEquals(first.id(), second.id());
+      assertSame(first, manager.get(first.id()));
+      assertEquals(2, manager.size());
+      assertSame(second, manager.remove(second.id()));
+      assertNull(manager.get(second.id()));
+    }
+  }
+
+  @Test
+  void testMoveTakesTurns() {
+    try (SessionManager manager = new SessionManager()) {
+      GameSession session = manager.create();
+      int move = firstMove(session, Side.A);
+
+      assertFalse(session.move(Side.B, Move.from(move), Move.to(move)).join().moved);
+      assertTrue(session.move(Side.A, Move.from(move), Move.to(move)).join().moved);
+      assertFalse(session.move(Side.A, Move.to(move), Move.from(move)).join().moved);
+      assertEquals(Side.B, session.submit(GameSession::turn).join());
+      int plies = session.submit(s -> s.record().size()).join();
+      assertEquals(1, plies);
+    }
+  }
+
+  @Test
+  void testCommandsAreSerialised() throws InterruptedException {
+    try (SessionManager manager = new SessionManager()) {
+      GameSession session = manager.create();
+      int[] counter = new int[1];
+      List<CompletableFuture<Integer>> futures = new ArrayList<>();
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        Thread thread =
+            new Thread(
+                () -> {
+                  for (int i = 0; i < 1000; i++) {
+                    CompletableFuture<Integer> future = session.submit(s -> ++counter[0]);
+                    synchronized (futures) {
+                      futures.add(future);
+                    }
+                  }
+                });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+      int total = session.submit(s -> counter[0]).join();
+      assertEquals(4000, total);
+    }
+  }
+
+  @Test
+  void testHibernateAndWake() {
+    MemoryStore store = new MemoryStore();
+    // Too long an idle time for the sweeper to run during the test; evictIdle gets its own clock
+    Duration idle = Duration.ofHours(1);
+    try (SessionManager manager = new SessionManager(null, store, idle)) {
+      GameSession session = manager.create();
+      int move = firstMove(session, Side.A);
+      assertTrue(session.move(Side.A, Move.from(move), Move.to(move)).join().moved);
+      long hash = session.submit(s -> s.board().hash()).join();
+
+      assertEquals(0, manager.evictIdle(System.nanoTime()));
+      assertTrue(session.isAwake());
+      GameSession listened = manager.create();
+      listened.subscribe(Side.NEITHER, frame -> frame.release()).join();
+      assertEquals(2, manager.evictIdle(System.nanoTime() + 2 * idle.toNanos()));
+      session.hibernate().join();
+      listened.hibernate().join();
+      assertFalse(session.isAwake());
+      assertEquals(2, store.saves);
+
+      // Nobody listens, so the shell leaves the map and the next lookup wakes a new session
+      assertEquals(1, manager.size());
+      assertTrue(session.isRetired());
+      assertFalse(listened.isRetired());
+      assertSame(listened, manager.get(listened.id()));
+      GameSession woken = manager.get(session.id());
+      assertNotSame(session, woken);
+      assertEquals(hash, (long) woken.submit(s -> s.board().hash()).join());
+      assertEquals(Side.B, woken.submit(GameSession::turn).join());
+      assertTrue(woken.isAwake());
+
+      // Unchanged since the last save, so nothing is written
+      assertTrue(woken.hibernate().join());
+      assertEquals(2, store.saves);
+    }
+  }
+
+  @Test
+  void testFinishedGamesLeaveTheMap() {
+    Board board = new Board();
+    Piece miner = board.A.findAnyByRank(Piece.MINER);
+    board.place(miner, 4, 3);
+    board.place(board.A.findAnyByRank(Piece.FLAG), 0, 0);
+    board.place(board.B.findAnyByRank(Piece.FLAG), 4, 6);
+    board.place(board.B.findAnyByRank(Piece.SCOUT), 9, 9);
+    board.move(miner, 4, 4);
+    board.move(miner, 4, 5);
+
+    MemoryStore store = new MemoryStore();
+    Duration idle = Duration.ofHours(1);
+    try (SessionManager manager = new SessionManager(null, store, idle)) {
+      GameSession session = manager.create(board);
+      assertTrue(
+          session.move(Side.A, Bitboard.index(4, 5), Bitboard.index(4, 6)).join().gameOver);
+      // Subscribed after the end, so it never hears of the game again
+      session.subscribe(Side.NEITHER, frame -> frame.release()).join();
+
+      assertEquals(1, manager.evictIdle(System.nanoTime() + 2 * idle.toNanos()));
+      session.hibernate().join();
+      assertEquals(0, manager.size());
+      assertTrue(manager.get(session.id()).submit(GameSession::isOver).join());
+    }
+  }
+
+  @Test
+  void testStoredGamesSurviveRestart() {
+    MemoryStore store = new MemoryStore();
+    long id;
+    long hash;
+    try (SessionManager manager = new SessionManager(null, store, Duration.ofHours(1))) {
+      GameSession session = manager.create();
+      id = session.id();
+      hash = session.submit(s -> s.board().hash()).join();
+    }
+
+    try (SessionManager manager = new SessionManager(null, store, Duration.ofHours(1))) {
+      GameSession session = manager.get(id);
+      assertNotNull(session);
+      assertEquals(hash, (long) session.submit(s -> s.board().hash()).join());
+      assertEquals(0, session.submit(s -> s.record().size()).join().intValue());
+      assertTrue(manager.create().id() > id);
+      assertNull(manager.get(id + 100));
+    }
+  }
+
+  @Test
+  void testTokensAdmitOnlyTheirSide() {
+    MemoryStore store = new MemoryStore();
+    long id;
+    String tokenA;
+    String tokenB;
+    try (SessionManager manager = new SessionManager(null, store, Duration.ofHours(1))) {
+      GameSession session = manager.create();
+      id = session.id();
+      tokenA = session.token(Side.A);
+      tokenB = session.token(Side.B);
+      assertNotEquals(tokenA, tokenB);
+      assertTrue(session.admits(Side.A, tokenA).join());
+      assertFalse(session.admits(Side.A, tokenB).join());
+      assertFalse(session.admits(Side.B, null).join());
+      assertFalse(session.admits(Side.NEITHER, tokenA).join());
+    }
+
+    // Loaded with the game after a restart
+    try (SessionManager manager = new SessionManager(null, store, Duration.ofHours(1))) {
+      GameSession session = manager.get(id);
+      assertTrue(session.admits(Side.B, tokenB).join());
+      assertFalse(session.admits(Side.B, tokenA).join());
+    }
+  }
+
+  @Test
+  void testListenersReceiveViewThenDeltas() {
+    try (SessionManager manager = new SessionManager()) {
+      GameSession session = manager.create();
+      List<ByteBuf> framesA = new ArrayList<>();
+      List<ByteBuf> spectated = new ArrayList<>();
+      session.subscribe(Side.A, framesA::add).join();
+      session.subscribe(Side.NEITHER, spectated::add).join();
+
+      int move = firstMove(session, Side.A);
+      session.move(Side.A, Move.from(move), Move.to(move)).join();
+      session.move(Side.A, Move.from(move), Move.to(move)).join(); // Rejected, not published
+
+      assertEquals(2, framesA.size());
+      assertEquals(ViewProjection.VIEW, framesA.get(0).getUnsignedByte(0));
+      assertEquals(ViewProjection.DELTA, framesA.get(1).getUnsignedByte(0));
+      assertEquals(2, spectated.size());
+      assertEquals(Move.to(move), spectated.get(1).getUnsignedByte(4));
+    }
+  }
+
+  @Test
+  void testGameEndReleasesListeners() {
+    Board board = new Board();
+    Piece miner = board.A.findAnyByRank(Piece.MINER);
+    board.place(miner, 4, 3);
+    board.place(board.A.findAnyByRank(Piece.FLAG), 0, 0);
+    board.place(board.B.findAnyByRank(Piece.FLAG), 4, 6);
+    board.place(board.B.findAnyByRank(Piece.SCOUT), 9, 9);
+    board.move(miner, 4, 4);
+    board.move(miner, 4, 5);
+
+    try (SessionManager manager = new SessionManager()) {
+      GameSession session = manager.create(board);
+      List<ByteBuf> frames = new ArrayList<>();
+      int[] ended = new int[1];
+      GameSession.Listener listener =
+          new GameSession.Listener() {
+            @Override
+            public void send(ByteBuf frame) {
+              frames.add(frame);
+            }
+
+            @Override
+            public void ended() {
+              ended[0]++;
+            }
+          };
+      session.subscribe(Side.NEITHER, listener).join();
+
+      assertTrue(
+          session.move(Side.A, Bitboard.index(4, 5), Bitboard.index(4, 6)).join().gameOver);
+      assertEquals(2, frames.size(), "View and the final delta");
+      assertEquals(1, ended[0]);
+    }
+  }
+
+  @Test
+  void testStoredGameKeepsRepetitionHistory() {
+    Board board = new Board();
+    Piece miner = board.A.findAnyByRank(Piece.MINER);
+    board.place(miner, 0, 0);
+    board.place(board.A.findAnyByRank(Piece.FLAG), 9, 0);
+    board.place(board.B.findAnyByRank(Piece.FLAG), 9, 9);
+    board.place(board.B.findAnyByRank(Piece.SCOUT), 0, 9);
+    assertTrue(board.move(miner, 0, 1).moved);
+    assertTrue(board.move(miner, 0, 0).moved);
+    assertTrue(board.move(miner, 0, 1).moved);
+    int back = Move.encode(Bitboard.index(0, 1), Bitboard.index(0, 0), 0);
+    assertTrue(board.isRepetition(back));
+
+    StoredGame stored =
+        new StoredGame(board, new GameRecord(board), Side.B, false, Side.NEITHER, null);
+    Board woken = stored.board();
+    assertTrue(woken.isRepetition(back), "Two-square rule survives hibernation");
+    assertArrayEquals(board.history(Side.A).positions(), woken.history(Side.A).positions());
+  }
+}
@@ -0,0 +1,65 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class SetupGeneratorTest {
+
+  @Test
+  void testUniformSetup() {
+    Board board = new Board();
+    SplittableRandom random = new SplittableRandom(11);
+    assertTrue(new SetupGenerator(Side.A).setup(board, board.A, random));
+    assertTrue(new SetupGenerator(Side.B).setup(board, board.B, random));
+
+    assertEquals(40, board.occupancy(Side.A).count());
+    assertEquals(40, board.occupancy(Side.B).count());
+    for (Piece piece : board.B.pieces) {
+      assertTrue(board.isStartable(Side.B, piece.position.x, piece.position.y));
+    }
+  }
+
+  @Test
+  void testNoPieceOnLake() {
+    SplittableRandom random = new SplittableRandom(3);
+    for (int n = 0; n < 100; n++) {
+      Board board = new Board();
+      assertTrue(new SetupGenerator(Side.A).setup(board, board.A, random));
+      assertTrue(new SetupGenerator(Side.B).setup(board, board.B, random));
+      assertEquals(0, board.occupancy(Side.A).countCommon(Board.LAKES));
+      assertEquals(0, board.occupancy(Side.B).countCommon(Board.LAKES));
+    }
+  }
+
+  @Test
+  void testWeightedSetup() {
+    // Flag only on the back row, everything else anywhere
+    double[][] weights = new double[Piece.RANKS][Bitboard.SQUARES];
+    for (double[] bySquare : weights) {
+      Arrays.fill(bySquare, 1);
+    }
+    Arrays.fill(weights[Piece.FLAG - Piece.FLAG], 0);
+    for (int x = 0; x < Board.WIDTH; x++) {
+      weights[Piece.FLAG - Piece.FLAG][Bitboard.index(x, 9)] = 1;
+    }
+
+    SetupGenerator generator = new SetupGenerator(Side.B, weights);
+    SplittableRandom random = new SplittableRandom(5);
+    for (int n = 0; n < 50; n++) {
+      Board board = new Board();
+      assertTrue(generator.setup(board, board.B, random));
+      assertEquals(9, board.B.findAnyByRank(Piece.FLAG).position.y);
+    }
+  }
+
+  @Test
+  void testImpossibleWeights() {
+    double[][] weights = new double[Piece.RANKS][Bitboard.SQUARES];
+    Board board = new Board();
+    assertFalse(new SetupGenerator(Side.B, weights).setup(board, board.B, new SplittableRandom()));
+    assertEquals(0, board.occupancy(Side.B).count());
+  }
+}
@@ -0,0 +1,47 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+
+  @Test
+  void testStoreAndProbe() {
+    TranspositionTable table = new TranspositionTable(1000);
+    long hash = 0x1234_5678_9ABC_DEF0L;
+    assertEquals(TranspositionTable.MISS, table.probe(hash));
+
+    int move = Move.encode(12, 22, Move.CAPTURE);
+    table.store(hash, move, -350, 6, TranspositionTable.LOWER);
+
+    long entry = table.probe(hash);
+    assertNotEquals(TranspositionTable.MISS, entry);
+    assertEquals(move, TranspositionTable.move(entry));
+    assertEquals(-350, TranspositionTable.score(entry));
+    assertEquals(6, TranspositionTable.depth(entry));
+    assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+  }
+
+  @Test
+  void testCollision() {
+    TranspositionTable table = new TranspositionTable(16);
+    long hash = 5;
+    long other = 5 + (1L << 40); // same slot, different position
+    table.store(hash, 0, 10, 4, TranspositionTable.EXACT);
+
+    assertEquals(TranspositionTable.MISS, table.probe(other));
+
+    table.store(other, 0, 20, 1, TranspositionTable.EXACT);
+    assertEquals(TranspositionTable.MISS, table.probe(hash));
+    assertEquals(20, TranspositionTable.score(table.probe(other)));
+  }
+
+  @Test
+  void testDeeperEntryIsKept() {
+    TranspositionTable table = new TranspositionTable(16);
+    table.store(7, 0, 10, 8, TranspositionTable.EXACT);
+    table.store(7, 0, 30, 2, TranspositionTable.EXACT);
+    assertEquals(10, TranspositionTable.score(table.probe(7)));
+  }
+}
@@ -0,0 +1,89 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ViewProjectionTest {
+  Board board;
+  Piece miner;
+  Piece spy;
+  ViewProjection view;
+  ByteBuf[] out;
+
+  @BeforeEach
+  void setUp() {
+    board = new Board();
+    miner = board.A.findAnyByRank(Piece.MINER);
+    spy = board.B.findAnyByRank(Piece.SPY);
+    board.place(miner, 0, 3);
+    board.place(spy, 0, 6);
+    view = new ViewProjection(board);
+    out = new ByteBuf[] {Unpooled.buffer(), Unpooled.buffer(), Unpooled.buffer()};
+  }
+
+  private ByteBuf delta(Side viewer) {
+    return out[viewer.ordinal()];
+  }
+
+  @Test
+  void testInitialKnowledge() {
+    assertTrue(view.knows(Side.A, miner));
+    assertFalse(view.knows(Side.A, spy));
+    assertTrue(view.knows(Side.B, spy));
+    assertFalse(view.knows(Side.NEITHER, miner));
+
+    ByteBuf frame = Unpooled.buffer();
+    view.view(Side.B, frame);
+    assertEquals(ViewProjection.VIEW_SIZE, frame.readableBytes());
+    assertEquals(ViewProjection.VIEW, frame.getUnsignedByte(0));
+    assertEquals(Bitboard.index(0, 3), frame.getUnsignedByte(1 + 2 * miner.id));
+    assertEquals(ViewProjection.UNKNOWN, frame.getUnsignedByte(2 + 2 * miner.id));
+    assertEquals(Piece.SPY - Piece.FLAG, frame.getUnsignedByte(2 + 2 * spy.id));
+  }
+
+  @Test
+  void testQuietMove() {
+    view.update(board.move(miner, 0, 4), out);
+
+    for (Side viewer : Side.values()) {
+      ByteBuf frame = delta(viewer);
+      assertEquals(5, frame.readableBytes());
+      assertEquals(ViewProjection.DELTA, frame.readUnsignedByte());
+      assertEquals(0, frame.readUnsignedByte());
+      assertEquals(miner.id, frame.readUnsignedByte());
+      assertEquals(Bitboard.index(0, 3), frame.readUnsignedByte());
+      assertEquals(Bitboard.index(0, 4), frame.readUnsignedByte());
+    }
+    assertFalse(view.knows(Side.B, miner));
+  }
+
+  @Test
+  void testCombatRevealsOnlyWhatWasHidden() {
+    board.move(miner, 0, 4);
+    board.move(miner, 0, 5);
+    view = new ViewProjection(board);
+    view.update(board.move(miner, 0, 6), out);
+
+    // A knew its miner, so only the spy's rank is news to it
+    ByteBuf a = delta(Side.A);
+    assertEquals(ViewProjection.DELTA, a.readUnsignedByte());
+    int flags = a.readUnsignedByte();
+    assertEquals(
+        ViewProjection.COMBAT | ViewProjection.DEFENDER_RANK | ViewProjection.DEFENDER_REMOVED,
+        flags);
+    a.skipBytes(3);
+    assertEquals(spy.id, a.readUnsignedByte());
+    assertEquals(Piece.SPY - Piece.FLAG, a.readUnsignedByte());
+    assertFalse(a.isReadable());
+
+    // Spectators learn both ranks
+    ByteBuf spectators = delta(Side.NEITHER);
+    assertEquals(8, spectators.readableBytes());
+    assertTrue(view.knows(Side.NEITHER, miner));
+    assertTrue(view.knows(Side.B, miner));
+  }
+}
@@ -0,0 +1,249 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BodyOutputTest {
+  static final int CHUNK_SIZE = BodyOutput.CHUNK_SIZE;
+  static final String SMILE = "\uD83D\uDE00";
+
+  EmbeddedChannel channel;
+  // The context of the handler writing the body, behind the given ones as RouterHandler is
+  ChannelHandlerContext ctx;
+  // What the last body() read: the response head and the size of each content
+  HttpResponse head;
+  List<Integer> sizes;
+
+  void connect(ChannelHandler... handlers) {
+    ChannelInboundHandlerAdapter router = new ChannelInboundHandlerAdapter();
+    channel = new EmbeddedChannel(handlers);
+    channel.pipeline().addLast(router);
+    ctx = channel.pipeline().context(router);
+  }
+
+  BodyOutput open(ChannelHandler... handlers) {
+    connect(handlers);
+    return new BodyOutput(ctx, HttpResponseStatus.OK, "text/plain", CHUNK_SIZE);
+  }
+
+  BodyOutput open() {
+    return open(new ChunkedWriteHandler());
+  }
+
+  // Reads one whole response and returns its body
+  ByteBuf body() {
+    channel.runPendingTasks();
+    head = channel.readOutbound();
+    assertNotNull(head);
+    sizes = new ArrayList<>();
+    ByteBuf body = Unpooled.buffer();
+    Object msg = head;
+    while (!(msg instanceof LastHttpContent)) {
+      msg = channel.readOutbound();
+      assertNotNull(msg, "Response not ended");
+      read((HttpContent) msg, body);
+    }
+    if (head instanceof FullHttpResponse full) {
+      read(full, body);
+    }
+    return body;
+  }
+
+  void read(HttpContent content, ByteBuf body) {
+    sizes.add(content.content().readableBytes());
+    body.writeBytes(content.content());
+    content.release();
+  }
+
+  String text() {
+    ByteBuf body = body();
+    String text = body.toString(StandardCharsets.UTF_8);
+    body.release();
+    return text;
+  }
+
+  String text(String... parts) {
+    BodyOutput out = open();
+    for (String part : parts) {
+      out.append(part);
+    }
+    out.finish();
+    String text = text();
+    assertFalse(channel.finish());
+    return text;
+  }
+
+  @Test
+  void testSmallBodyHasContentLength() {
+    assertEquals("hello", text("hel", "lo"));
+    assertInstanceOf(FullHttpResponse.class, head);
+    assertEquals(5, HttpUtil.getContentLength(head));
+  }
+
+  @Test
+  void testChunkBoundaries() {
+    // Body length, then the size of each content sent; one size means a full response
+    int[][] cases = {
+      {CHUNK_SIZE - 1, CHUNK_SIZE - 1}, {CHUNK_SIZE, CHUNK_SIZE, 0}, {CHUNK_SIZE + 1, CHUNK_SIZE, 1}
+    };
+    for (int[] c : cases) {
+      byte[] bytes = new byte[c[0]];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) i;
+      }
+      BodyOutput out = open();
+      out.write(bytes, 0, bytes.length);
+      out.finish();
+      ByteBuf body = body();
+      assertEquals(Unpooled.wrappedBuffer(bytes), body);
+      body.release();
+      assertEquals(c.length == 2, head instanceof FullHttpResponse);
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 1; i < c.length; i++) {
+        expected.add(c[i]);
+      }
+      assertEquals(expected, sizes);
+      assertFalse(channel.finish());
+    }
+  }
+
+  @Test
+  void testUtf8AtChunkBoundary() {
+    for (int offset = 0; offset < 4; offset++) {
+      String text = "a".repeat(CHUNK_SIZE - offset) + "\u00e9\u20ac" + SMILE + "b".repeat(100);
+      assertEquals(text, text(text));
+      assertTrue(sizes.size() >= 2);
+      sizes.forEach(size -> assertTrue(size <= CHUNK_SIZE, "Chunk of " + size));
+    }
+  }
+
+  @Test
+  void testSurrogatesSplitAcrossAppends() {
+    assertEquals("a" + SMILE + "b", text("a\uD83D", "\uDE00b"));
+    // A pending high surrogate followed by a whole pair
+    assertEquals("a?" + SMILE + "b", text("a\uD83D", SMILE + "b"));
+    assertEquals("?" + SMILE, text("\uD83D", "\uD83D", "\uDE00"));
+    assertEquals("a?", text("a\uD83D"));
+    assertEquals("?b", text("\uDE00b"));
+
+    BodyOutput out = open();
+    out.append('\uD83D').append('\uDE00').append("\uD83D").append('\uDE00');
+    out.finish();
+    assertEquals(SMILE + SMILE, text());
+  }
+
+  @Test
+  void testChunksWaitForWritability() {
+    // Holds back flushes, so everything written stays pending in the channel
+    final class Stall extends ChannelOutboundHandlerAdapter {
+      boolean stalled = true;
+      int contents;
+
+      @Override
+      public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof HttpContent) {
+          contents++;
+        }
+        ctx.write(msg, promise);
+      }
+
+      @Override
+      public void flush(ChannelHandlerContext ctx) {
+        if (!stalled) {
+          ctx.flush();
+        }
+      }
+    }
+    Stall stall = new Stall();
+    BodyOutput out = open(stall, new ChunkedWriteHandler());
+    channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, CHUNK_SIZE));
+
+    byte[] bytes = new byte[3 * CHUNK_SIZE + 10];
+    out.write(bytes, 0, bytes.length);
+    out.finish();
+    assertFalse(channel.isWritable());
+    assertEquals(1, stall.contents, "Later chunks wait for the first");
+
+    stall.stalled = false;
+    channel.flush();
+    ByteBuf body = body();
+    assertEquals(bytes.length, body.readableBytes());
+    body.release();
+    assertEquals(List.of(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE, 10), sizes);
+    assertEquals(4, stall.contents);
+    assertFalse(channel.finish());
+  }
+
+  @Test
+  void testWithoutChunkedWriteHandler() {
+    BodyOutput out = open(new ChannelHandler[0]);
+    byte[] bytes = new byte[CHUNK_SIZE + 1];
+    out.write(bytes, 0, bytes.length);
+    out.finish();
+    ByteBuf body = body();
+    assertEquals(bytes.length, body.readableBytes());
+    body.release();
+    assertEquals(List.of(CHUNK_SIZE, 1), sizes);
+    assertFalse(channel.finish());
+  }
+
+  // Hands out unpooled direct buffers and keeps them, to check that all were released
+  static final class Recording extends UnpooledByteBufAllocator {
+    final List<ByteBuf> buffers = new ArrayList<>();
+
+    Recording() {
+      super(true);
+    }
+
+    @Override
+    protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+      ByteBuf buf = super.newDirectBuffer(initialCapacity, maxCapacity);
+      buffers.add(buf);
+      return buf;
+    }
+  }
+
+  @Test
+  void testDiscardReleasesBuffers() {
+    for (int length : new int[] {10, 3 * CHUNK_SIZE}) {
+      Recording allocator = new Recording();
+      connect(new ChunkedWriteHandler());
+      channel.config().setAllocator(allocator);
+      BodyOutput out = new BodyOutput(ctx, HttpResponseStatus.OK, "text/plain", CHUNK_SIZE);
+      out.append("x".repeat(length));
+
+      // What RouterHandler does when the body's writer fails
+      if (out.discard()) {
+        assertTrue(length < CHUNK_SIZE);
+      } else {
+        ctx.close();
+      }
+      channel.finishAndReleaseAll();
+      assertFalse(allocator.buffers.isEmpty());
+      for (ByteBuf buf : allocator.buffers) {
+        assertEquals(0, buf.refCnt(), "Leaked after " + length + " bytes");
+      }
+    }
+  }
+}
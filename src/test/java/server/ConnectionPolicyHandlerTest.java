@@ -0,0 +1,94 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPolicyHandlerTest {
+
+  static void request(EmbeddedChannel channel) {
+    channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/"));
+    channel.readInbound();
+  }
+
+  static HttpResponse respond(EmbeddedChannel channel) {
+    channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    DefaultFullHttpResponse response = channel.readOutbound();
+    response.release();
+    return response;
+  }
+
+  static void idle(EmbeddedChannel channel) {
+    channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+  }
+
+  @Test
+  void testIdleConnectionCloses() {
+    EmbeddedChannel channel = new EmbeddedChannel(new ConnectionPolicyHandler(10));
+    request(channel);
+    respond(channel);
+    idle(channel);
+    assertFalse(channel.isOpen());
+  }
+
+  @Test
+  void testPendingResponseKeepsConnection() {
+    EmbeddedChannel channel = new EmbeddedChannel(new ConnectionPolicyHandler(10));
+    request(channel);
+    idle(channel);
+    assertTrue(channel.isOpen(), "Request still being handled");
+
+    // An interim response answers nothing
+    channel.writeOutbound(
+        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+    idle(channel);
+    assertTrue(channel.isOpen());
+
+    // A chunked response is pending until its last content is written
+    channel.writeOutbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+    channel.writeOutbound(new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[] {1})));
+    idle(channel);
+    assertTrue(channel.isOpen(), "Body still being written");
+
+    channel.writeOutbound(LastHttpContent.EMPTY_LAST_CONTENT);
+    idle(channel);
+    assertFalse(channel.isOpen());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void testPipelinedRequestsStayPending() {
+    EmbeddedChannel channel = new EmbeddedChannel(new ConnectionPolicyHandler(10));
+    request(channel);
+    request(channel);
+    respond(channel);
+    idle(channel);
+    assertTrue(channel.isOpen(), "Second request not answered yet");
+    respond(channel);
+    idle(channel);
+    assertFalse(channel.isOpen());
+  }
+
+  @Test
+  void testMaxRequestsClosesAfterLastResponse() {
+    EmbeddedChannel channel = new EmbeddedChannel(new ConnectionPolicyHandler(2));
+    request(channel);
+    assertTrue(HttpUtil.isKeepAlive(respond(channel)));
+    request(channel);
+    assertFalse(HttpUtil.isKeepAlive(respond(channel)), "Marked Connection: close");
+    channel.finishAndReleaseAll();
+  }
+}
@@ -0,0 +1,221 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import game.GameSession;
+import game.SessionManager;
+import game.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameDecoder;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameEncoder;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolConfig;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GameSocketHandlerTest {
+  // Frame types of ViewProjection
+  static final int VIEW = 1;
+  static final int DELTA = 2;
+
+  SessionManager sessions;
+  Spectators spectators;
+  GameSession session;
+
+  // A server socket with the pipeline of Server, plus a client codec to talk to it
+  static final class Socket {
+    final EmbeddedChannel server;
+    final EmbeddedChannel encoder = new EmbeddedChannel(new WebSocket08FrameEncoder(true));
+    final EmbeddedChannel decoder =
+        new EmbeddedChannel(new WebSocket08FrameDecoder(false, false, 65536));
+    boolean upgraded;
+
+    Socket(SessionManager sessions, Spectators spectators, String uri) {
+      server =
+          new EmbeddedChannel(
+              new HttpServerCodec(),
+              new HttpObjectAggregator(65536),
+              new WebSocketServerProtocolHandler(
+                  WebSocketServerProtocolConfig.newBuilder()
+                      .websocketPath(GameSocketHandler.PATH)
+                      .checkStartsWith(true)
+                      .build()),
+              new GameSocketHandler(sessions, spectators));
+      server.pipeline().addFirst(Server.IDLE, new ChannelDuplexHandler());
+      String request =
+          "GET "
+              + uri
+              + " HTTP/1.1\r\n"
+              + "Host: localhost\r\n"
+              + "Upgrade: websocket\r\n"
+              + "Connection: Upgrade\r\n"
+              + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+              + "Sec-WebSocket-Version: 13\r\n\r\n";
+      server.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+      server.runPendingTasks();
+    }
+
+    void send(int from, int to) {
+      ByteBuf move = Unpooled.wrappedBuffer(new byte[] {(byte) from, (byte) to});
+      encoder.writeOutbound(new BinaryWebSocketFrame(move));
+      ByteBuf bytes;
+      while ((bytes = encoder.readOutbound()) != null) {
+        server.writeInbound(bytes);
+      }
+      server.runPendingTasks();
+    }
+
+    // Frames the server wrote since the last call
+    List<WebSocketFrame> frames() {
+      server.runPendingTasks();
+      ByteBuf bytes;
+      while ((bytes = server.readOutbound()) != null) {
+        if (!upgraded) {
+          // The 101 response comes first, in one buffer
+          upgraded = true;
+          assertTrue(bytes.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 101"));
+          bytes.release();
+          continue;
+        }
+        decoder.writeInbound(bytes);
+      }
+      List<WebSocketFrame> frames = new ArrayList<>();
+      WebSocketFrame frame;
+      while ((frame = decoder.readInbound()) != null) {
+        frames.add(frame);
+      }
+      return frames;
+    }
+
+    void close() {
+      server.finishAndReleaseAll();
+      encoder.finishAndReleaseAll();
+      decoder.finishAndReleaseAll();
+    }
+  }
+
+  static int type(WebSocketFrame frame) {
+    return frame.content().getUnsignedByte(frame.content().readerIndex());
+  }
+
+  static void release(List<WebSocketFrame> frames) {
+    frames.forEach(WebSocketFrame::release);
+  }
+
+  @BeforeEach
+  void setUp() {
+    // Commands run on the calling thread, so every future completes before the call returns
+    Executor direct = Runnable::run;
+    sessions = new SessionManager(() -> direct);
+    spectators = new Spectators();
+    session = sessions.create();
+  }
+
+  @AfterEach
+  void tearDown() {
+    sessions.close();
+  }
+
+  String uri(String query) {
+    return GameSocketHandler.PATH + "/" + session.id() + query;
+  }
+
+  @Test
+  void testWrongTokenIsClosed() {
+    String stolen = "?side=A&token=" + token(Side.B);
+    for (String query : List.of("?side=A&token=nope", "?side=B", stolen)) {
+      Socket socket = new Socket(sessions, spectators, uri(query));
+      List<WebSocketFrame> frames = socket.frames();
+      assertEquals(1, frames.size(), query);
+      CloseWebSocketFrame close = assertInstanceOf(CloseWebSocketFrame.class, frames.getFirst());
+      assertEquals(WebSocketCloseStatus.POLICY_VIOLATION.code(), close.statusCode());
+      assertFalse(socket.server.isOpen());
+      release(frames);
+      socket.close();
+    }
+  }
+
+  @Test
+  void testUnknownSideIsClosed() {
+    Socket socket = new Socket(sessions, spectators, uri("?side=C&token=" + token(Side.A)));
+    List<WebSocketFrame> frames = socket.frames();
+    assertInstanceOf(CloseWebSocketFrame.class, frames.getFirst());
+    release(frames);
+    socket.close();
+  }
+
+  @Test
+  void testPlayersOnlyMoveTheirOwnSide() {
+    Socket a = new Socket(sessions, spectators, uri("?side=A&token=" + token(Side.A)));
+    Socket b = new Socket(sessions, spectators, uri("?side=B&token=" + token(Side.B)));
+    Socket spectator = new Socket(sessions, spectators, uri(""));
+    for (Socket socket : List.of(a, b, spectator)) {
+      List<WebSocketFrame> frames = socket.frames();
+      assertEquals(1, frames.size());
+      assertEquals(VIEW, type(frames.getFirst()));
+      release(frames);
+    }
+
+    // Forward from A's front row, past the lakes; B and the spectator may not play it
+    int[] columns = {0, 1, 4, 5, 8, 9};
+    for (int x : columns) {
+      for (Socket socket : List.of(b, spectator)) {
+        socket.send(30 + x, 40 + x);
+        List<WebSocketFrame> frames = socket.frames();
+        assertEquals(1, frames.size());
+        assertEquals(GameSocketHandler.REJECTED, type(frames.getFirst()));
+        release(frames);
+      }
+    }
+
+    // A can, unless a bomb or flag stands on the square
+    boolean moved = false;
+    for (int i = 0; i < columns.length && !moved; i++) {
+      a.send(30 + columns[i], 40 + columns[i]);
+      List<WebSocketFrame> frames = a.frames();
+      assertEquals(1, frames.size());
+      moved = type(frames.getFirst()) == DELTA;
+      release(frames);
+    }
+    assertTrue(moved);
+
+    List<WebSocketFrame> frames = b.frames();
+    assertEquals(1, frames.size());
+    assertEquals(DELTA, type(frames.getFirst()));
+    release(frames);
+
+    a.close();
+    b.close();
+    spectator.close();
+  }
+
+  @Test
+  void testMalformedMoveIsRejected() {
+    Socket a = new Socket(sessions, spectators, uri("?side=A&token=" + token(Side.A)));
+    release(a.frames());
+    a.encoder.writeOutbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(new byte[] {1})));
+    a.server.writeInbound((ByteBuf) a.encoder.readOutbound());
+    List<WebSocketFrame> frames = a.frames();
+    assertEquals(GameSocketHandler.REJECTED, type(frames.getFirst()));
+    release(frames);
+    a.close();
+  }
+
+  String token(Side side) {
+    return session.token(side);
+  }
+}
@@ -0,0 +1,102 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RouteTreeTest {
+  RouteTree routes;
+  RouteMatch match;
+
+  static final RouteHandle HELLO = (ctx, request, match) -> null;
+  static final RouteHandle GAME = (ctx, request, match) -> null;
+  static final RouteHandle MOVES = (ctx, request, match) -> null;
+  static final RouteHandle MOVE = (ctx, request, match) -> null;
+  static final RouteHandle ASSETS = (ctx, request, match) -> null;
+  static final RouteHandle ROOT = (ctx, request, match) -> null;
+
+  @BeforeEach
+  void setUp() {
+    routes = new RouteTree();
+    match = new RouteMatch();
+    routes.add(HandlerType.GET, "/", ROOT);
+    routes.add(HandlerType.GET, "/hello", HELLO);
+    routes.add(HandlerType.GET, "/games/{id}", GAME);
+    routes.add(HandlerType.GET, "/games/{id}/moves", MOVES);
+    routes.add(HandlerType.POST, "/games/{game}/moves", MOVES);
+    routes.add(HandlerType.GET, "/games/{id}/moves/{ply}", MOVE);
+    routes.add(HandlerType.GET, "/assets/*path", ASSETS);
+  }
+
+  private boolean match(HandlerType method, String uri) {
+    int query = uri.indexOf('?');
+    return routes.match(method, uri, query < 0 ? uri.length() : query, match);
+  }
+
+  @Test
+  void testStaticRoutes() {
+    assertTrue(match(HandlerType.GET, "/"));
+    assertSame(ROOT, match.handler());
+    assertTrue(match(HandlerType.GET, "/hello?name=x"));
+    assertSame(HELLO, match.handler());
+    assertEquals(0, match.paramCount());
+
+    assertFalse(match(HandlerType.GET, "/hello/"));
+    assertFalse(match(HandlerType.GET, "/hell"));
+    assertFalse(match(HandlerType.POST, "/hello"));
+  }
+
+  @Test
+  void testParameters() {
+    assertTrue(match(HandlerType.GET, "/games/42/moves/7"));
+    assertSame(MOVE, match.handler());
+    assertEquals("42", match.param("id"));
+    assertEquals("7", match.param("ply"));
+    assertNull(match.param("game"));
+
+    assertTrue(match(HandlerType.POST, "/games/9/moves"));
+    assertEquals("9", match.param("game"));
+
+    assertFalse(match(HandlerType.GET, "/games//moves"));
+  }
+
+  @Test
+  void testStaticBeatsParameterWithBacktracking() {
+    RouteHandle active = (ctx, request, m) -> null;
+    routes.add(HandlerType.GET, "/games/active", active);
+
+    assertTrue(match(HandlerType.GET, "/games/active"));
+    assertSame(active, match.handler());
+    assertTrue(match(HandlerType.GET, "/games/active/moves"));
+    assertSame(MOVES, match.handler());
+    assertEquals("active", match.param("id"));
+  }
+
+  @Test
+  void testWildcard() {
+    assertTrue(match(HandlerType.GET, "/assets/css/site.css?v=2"));
+    assertSame(ASSETS, match.handler());
+    assertEquals("css/site.css", match.param("path"));
+    assertFalse(match(HandlerType.GET, "/assets"));
+  }
+
+  @Test
+  void testBlockingFlag() {
+    RouteHandle report = (ctx, request, m) -> null;
+    routes.add(HandlerType.GET, "/games/{id}/report", report, true);
+
+    assertTrue(match(HandlerType.GET, "/games/3/report"));
+    assertTrue(match.blocking());
+    assertTrue(match(HandlerType.GET, "/games/3"));
+    assertFalse(match.blocking());
+  }
+
+  @Test
+  void testInvalidRoutes() {
+    Class<IllegalArgumentException> invalid = IllegalArgumentException.class;
+    assertThrows(invalid, () -> routes.add(HandlerType.GET, "/hello", HELLO));
+    assertThrows(invalid, () -> routes.add(HandlerType.GET, "/a/*/b", HELLO));
+    assertThrows(invalid, () -> routes.add(HandlerType.GET, "nope", HELLO));
+  }
+}
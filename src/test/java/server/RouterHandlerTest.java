@@ -0,0 +1,157 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RouterHandlerTest {
+  // Blocking tasks, run by the test in place of virtual threads
+  final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+  final List<Throwable> reported = new ArrayList<>();
+  EmbeddedChannel channel;
+
+  @BeforeAll
+  static void registerRoutes() {
+    RouteRegistry.addRoute(
+        RouteDef.blocking(
+            HandlerType.GET,
+            "/router-test/echo/{text}",
+            (ctx, request, match) -> new TextResponse(match.param("text"), HttpResponseStatus.OK)));
+    RouteRegistry.addRoute(
+        RouteDef.blocking(
+            HandlerType.GET,
+            "/router-test/error",
+            (ctx, request, match) -> {
+              throw new AssertionError("Handler failed");
+            }));
+    RouteRegistry.addRoute(
+        new RouteDef(
+            HandlerType.GET,
+            "/router-test/inline",
+            (ctx, request, match) -> {
+              throw new IllegalStateException("Handler failed");
+            }));
+  }
+
+  @BeforeEach
+  void setUp() {
+    channel =
+        new EmbeddedChannel(
+            new RouterHandler(tasks::add),
+            new ChannelInboundHandlerAdapter() {
+              @Override
+              public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                reported.add(cause);
+              }
+            });
+  }
+
+  void request(String uri) {
+    channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri));
+  }
+
+  // Runs the next blocking handler and the answer it hands back to the event loop
+  void runTask() {
+    tasks.poll().run();
+    channel.runPendingTasks();
+  }
+
+  FullHttpResponse response() {
+    return channel.readOutbound();
+  }
+
+  static String body(FullHttpResponse response) {
+    String body = response.content().toString(StandardCharsets.UTF_8);
+    response.release();
+    return body;
+  }
+
+  @Test
+  void testFailingBlockingHandlerGets500() {
+    request("/router-test/error");
+    assertFalse(channel.config().isAutoRead());
+    runTask();
+
+    FullHttpResponse response = response();
+    assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response.status());
+    response.release();
+    assertInstanceOf(AssertionError.class, reported.getFirst());
+    assertTrue(channel.config().isAutoRead());
+
+    // The connection goes on
+    request("/router-test/echo/after");
+    runTask();
+    assertEquals("after", body(response()));
+    assertFalse(channel.finish());
+  }
+
+  @Test
+  void testFailingInlineHandlerGets500() {
+    request("/router-test/inline");
+    FullHttpResponse response = response();
+    assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response.status());
+    response.release();
+    assertInstanceOf(IllegalStateException.class, reported.getFirst());
+  }
+
+  @Test
+  void testPipelinedBlockingRequestsAnswerInOrder() {
+    request("/router-test/echo/one");
+    request("/router-test/error");
+    request("/router-test/echo/three");
+    assertEquals(1, tasks.size(), "Later requests wait for the first");
+    assertFalse(channel.config().isAutoRead());
+
+    runTask();
+    assertEquals("one", body(response()));
+    assertNull(response());
+    assertFalse(channel.config().isAutoRead(), "Second request blocks again");
+
+    runTask();
+    FullHttpResponse failed = response();
+    assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, failed.status());
+    failed.release();
+
+    runTask();
+    assertEquals("three", body(response()));
+    assertTrue(tasks.isEmpty());
+    assertTrue(channel.config().isAutoRead());
+    assertFalse(channel.finish());
+  }
+
+  @Test
+  void testRejectedTaskGets500AndReadsOn() {
+    channel =
+        new EmbeddedChannel(
+            new RouterHandler(
+                task -> {
+                  throw new RejectedExecutionException();
+                }),
+            new ChannelInboundHandlerAdapter() {
+              @Override
+              public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                reported.add(cause);
+              }
+            });
+    request("/router-test/echo/lost");
+    FullHttpResponse response = response();
+    assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response.status());
+    response.release();
+    assertTrue(channel.config().isAutoRead());
+  }
+}
@@ -0,0 +1,150 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import game.GameSession;
+import game.SessionManager;
+import game.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SpectatorsTest {
+  // Frame types of ViewProjection
+  static final int VIEW = 1;
+  static final int DELTA = 2;
+
+  SessionManager sessions;
+  Spectators spectators;
+  GameSession session;
+
+  @BeforeEach
+  void setUp() {
+    // Commands run on the calling thread, so every future completes before the call returns
+    Executor direct = Runnable::run;
+    sessions = new SessionManager(() -> direct);
+    spectators = new Spectators();
+    session = sessions.create();
+  }
+
+  @AfterEach
+  void tearDown() {
+    sessions.close();
+  }
+
+  // Type of the next frame written to the channel, or -1 if there is none
+  static int next(EmbeddedChannel channel) {
+    channel.runPendingTasks();
+    BinaryWebSocketFrame frame = channel.readOutbound();
+    if (frame == null) {
+      return -1;
+    }
+    int type = frame.content().getUnsignedByte(frame.content().readerIndex());
+    frame.release();
+    return type;
+  }
+
+  // Plays a step forward from the side's front row, trying columns clear of the lakes
+  void advance(Side side) {
+    for (int x : new int[] {0, 1, 4, 5, 8, 9}) {
+      int from = side == Side.A ? 30 + x : 60 + x;
+      int to = side == Side.A ? from + 10 : from - 10;
+      if (session.move(side, from, to).join().moved()) {
+        return;
+      }
+    }
+    fail("No piece of " + side + " could step forward");
+  }
+
+  @Test
+  void testJoinAndLeave() {
+    EmbeddedChannel first = new EmbeddedChannel();
+    EmbeddedChannel second = new EmbeddedChannel();
+    spectators.join(session, first);
+    spectators.join(session, second);
+    GameSession.Listener audience = spectators.audience(session.id());
+    assertNotNull(audience);
+    assertEquals(VIEW, next(first));
+    assertEquals(VIEW, next(second));
+
+    // One audience for the game, however many watch
+    advance(Side.A);
+    assertEquals(DELTA, next(first));
+    assertEquals(DELTA, next(second));
+
+    // Channels leave once closed, as GameSocketHandler does on channelInactive
+    first.finishAndReleaseAll();
+    spectators.leave(session, first);
+    assertSame(audience, spectators.audience(session.id()));
+    advance(Side.B);
+    assertEquals(DELTA, next(second));
+
+    second.finishAndReleaseAll();
+    spectators.leave(session, second);
+    assertNull(spectators.audience(session.id()));
+    // Leaving twice is harmless
+    spectators.leave(session, second);
+  }
+
+  @Test
+  void testStalledChannelIsDroppedAndRejoins() {
+    EmbeddedChannel stalled = new EmbeddedChannel();
+    EmbeddedChannel healthy = new EmbeddedChannel();
+    spectators.join(session, stalled);
+    spectators.join(session, healthy);
+    assertEquals(VIEW, next(stalled));
+    assertEquals(VIEW, next(healthy));
+
+    // Pending bytes past the high water mark make the channel unwritable
+    stalled.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 2));
+    stalled.write(Unpooled.buffer(8).writeZero(8));
+    assertFalse(stalled.isWritable());
+
+    advance(Side.A);
+    assertEquals(DELTA, next(healthy));
+    stalled.runPendingTasks();
+    stalled.flush();
+    assertTrue(stalled.isWritable());
+    ((ByteBuf) stalled.readOutbound()).release();
+    assertEquals(-1, next(stalled), "Skipped rather than queued");
+
+    // Still a member, so it rejoins with a fresh view and then gets every delta again
+    spectators.rejoin(session, stalled);
+    assertEquals(VIEW, next(stalled));
+    spectators.rejoin(session, stalled);
+    assertEquals(-1, next(stalled), "Already in its group");
+    advance(Side.B);
+    assertEquals(DELTA, next(stalled));
+    assertEquals(DELTA, next(healthy));
+
+    stalled.finishAndReleaseAll();
+    healthy.finishAndReleaseAll();
+  }
+
+  @Test
+  void testGameEndReleasesAudience() {
+    EmbeddedChannel channel = new EmbeddedChannel();
+    spectators.join(session, channel);
+    assertEquals(VIEW, next(channel));
+    GameSession.Listener audience = spectators.audience(session.id());
+
+    // What the session does once the game is over
+    audience.ended();
+    assertNull(spectators.audience(session.id()));
+
+    // A later spectator gets an audience of its own
+    EmbeddedChannel late = new EmbeddedChannel();
+    spectators.join(session, late);
+    assertEquals(VIEW, next(late));
+    assertNotSame(audience, spectators.audience(session.id()));
+
+    channel.finishAndReleaseAll();
+    late.finishAndReleaseAll();
+  }
+}
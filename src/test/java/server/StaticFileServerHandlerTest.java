@@ -0,0 +1,75 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StaticFileServerHandlerTest {
+  @TempDir Path root;
+
+  EmbeddedChannel serve(boolean fileRegions, byte[] body) throws IOException {
+    Files.write(root.resolve("app.js"), body);
+    EmbeddedChannel channel =
+        new EmbeddedChannel(
+            new ChunkedWriteHandler(), new StaticFileServerHandler(root.toString(), fileRegions));
+    channel.writeInbound(
+        new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/app.js"));
+    channel.runPendingTasks();
+    HttpResponse response = channel.readOutbound();
+    assertEquals(body.length, HttpUtil.getContentLength(response));
+    return channel;
+  }
+
+  @Test
+  void testFileRegion() throws IOException {
+    EmbeddedChannel channel = serve(true, new byte[100]);
+    DefaultFileRegion region = channel.readOutbound();
+    assertEquals(100, region.count());
+    region.release();
+    assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+    assertFalse(channel.finish());
+  }
+
+  // io_uring cannot write a FileRegion, so the file goes out as chunks of HTTP content
+  @Test
+  void testChunkedWithoutFileRegions() throws IOException {
+    byte[] body = new byte[BodyOutput.CHUNK_SIZE + 10];
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) i;
+    }
+    EmbeddedChannel channel = serve(false, body);
+
+    ByteBuf received = Unpooled.buffer();
+    int chunks = 0;
+    Object msg;
+    while ((msg = channel.readOutbound()) != null) {
+      HttpContent content = (HttpContent) msg;
+      received.writeBytes(content.content());
+      content.release();
+      chunks++;
+      if (content instanceof LastHttpContent) {
+        break;
+      }
+    }
+    assertTrue(chunks >= 2);
+    assertEquals(Unpooled.wrappedBuffer(body), received);
+    received.release();
+    assertFalse(channel.finish());
+  }
+}
@@ -0,0 +1,31 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TransportTest {
+
+  @Test
+  void testAutoNeverPicksIoUring() {
+    Transport auto = Transport.select("auto");
+    assertEquals(Transport.EPOLL.isAvailable() ? Transport.EPOLL : Transport.NIO, auto);
+    assertEquals(auto, Transport.select(null));
+  }
+
+  @Test
+  void testNamedTransport() {
+    assertEquals(Transport.NIO, Transport.select("nio"));
+    assertEquals(Transport.NIO, Transport.select(" NIO "));
+    Transport uring = Transport.select("io_uring");
+    assertEquals(Transport.IO_URING.isAvailable() ? Transport.IO_URING : Transport.NIO, uring);
+    assertThrows(IllegalArgumentException.class, () -> Transport.select("kqueue"));
+  }
+
+  @Test
+  void testOnlyIoUringLacksFileRegions() {
+    assertFalse(Transport.IO_URING.fileRegions());
+    assertTrue(Transport.EPOLL.fileRegions());
+    assertTrue(Transport.NIO.fileRegions());
+  }
+}